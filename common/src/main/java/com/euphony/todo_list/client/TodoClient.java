@@ -1,4 +1,88 @@
 package com.euphony.todo_list.client;
 
+import com.euphony.todo_list.data.TodoArchive;
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import com.euphony.todo_list.data.WorldStorageContext;
+import com.euphony.todo_list.todo.TodoItem;
+import com.euphony.todo_list.todo.TodoListManager;
+import com.euphony.todo_list.todo.TodoReminders;
+import net.minecraft.ChatFormatting;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.components.toasts.SystemToast;
+import net.minecraft.network.chat.Component;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
 public class TodoClient {
+    private static final DateTimeFormatter DUE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // 同一时间到期的条目在聊天栏中最多逐条列出的数量
+    private static final int MAX_REMINDER_LINES = 5;
+    // 提醒共用一个提示框，连续到期时更新内容而不是叠加
+    private static final SystemToast.SystemToastId REMINDER_TOAST = new SystemToast.SystemToastId(8000L);
+
+    /**
+     * 客户端tick结束时调用，驱动延迟保存
+     */
+    public static void onClientTick(Minecraft minecraft) {
+        TodoSaveScheduler.getInstance().tick();
+        TodoArchive.getInstance().tick();
+        // 不在世界中时不取出提醒，进入世界后再显示
+        if (minecraft.player != null) {
+            showReminders(minecraft);
+        }
+    }
+
+    /**
+     * 显示到期提醒和加载时已过期的数量
+     */
+    private static void showReminders(Minecraft minecraft) {
+        TodoReminders reminders = TodoReminders.getInstance();
+        int overdue = reminders.takeOverdueOnLoad();
+        if (overdue > 0) {
+            Component message = Component.translatable("todo_list.reminder.overdue", overdue);
+            SystemToast.addOrUpdate(minecraft.getToasts(), REMINDER_TOAST,
+                    Component.translatable("todo_list.reminder.title"), message);
+            minecraft.gui.getChat().addMessage(message.copy().withStyle(ChatFormatting.GOLD));
+        }
+
+        List<TodoItem> due = reminders.pollDue();
+        if (due.isEmpty()) return;
+
+        Component toastText = due.size() == 1 ?
+                Component.literal(due.get(0).getTitle()) :
+                Component.translatable("todo_list.reminder.many", due.size());
+        SystemToast.addOrUpdate(minecraft.getToasts(), REMINDER_TOAST,
+                Component.translatable("todo_list.reminder.title"), toastText);
+
+        for (int i = 0; i < Math.min(due.size(), MAX_REMINDER_LINES); i++) {
+            TodoItem item = due.get(i);
+            minecraft.gui.getChat().addMessage(Component.translatable("todo_list.reminder.due",
+                    item.getTitle(), item.getDueDate().format(DUE_FORMATTER)).withStyle(ChatFormatting.GOLD));
+        }
+        if (due.size() > MAX_REMINDER_LINES) {
+            minecraft.gui.getChat().addMessage(Component.translatable("todo_list.reminder.more",
+                    due.size() - MAX_REMINDER_LINES).withStyle(ChatFormatting.GOLD));
+        }
+    }
+
+    /**
+     * 断开连接时调用，确保所有修改写入磁盘后关闭存储上下文
+     */
+    public static void onDisconnect() {
+        TodoListManager.getInstance().cancelLoading();
+        TodoReminders.getInstance().clear();
+        TodoSaveScheduler.getInstance().flush();
+        // 丢弃尚未完成的归档加载，结果不能再合并到已关闭的存储上下文
+        TodoArchive.getInstance().reset();
+        WorldStorageContext.close();
+    }
+
+    /**
+     * 游戏退出时调用，确保所有修改写入磁盘
+     */
+    public static void onClientStopping() {
+        TodoSaveScheduler.getInstance().flush();
+        WorldStorageContext.close();
+    }
 }
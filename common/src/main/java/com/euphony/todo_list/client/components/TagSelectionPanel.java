@@ -37,6 +37,11 @@ public class TagSelectionPanel extends AbstractWidget {
     private Button addTagButton;
     private final List<Checkbox> tagCheckboxes = new ArrayList<>();
 
+    // 过滤结果在每帧会被多次使用，搜索文本和标签都没有变化时沿用
+    private String cachedSearchText;
+    private long cachedNamesVersion = -1;
+    private List<Tag> cachedFilteredTags = List.of();
+
     public TagSelectionPanel(int x, int y, int width, int height, Screen parentScreen,
                            List<Tag> initialSelectedTags, Consumer<List<Tag>> onTagsChanged) {
         super(x, y, width, height, Component.literal("Tag Selection"));
@@ -87,8 +92,7 @@ public class TagSelectionPanel extends AbstractWidget {
 
     public List<Checkbox> createTagCheckboxes() {
         List<Checkbox> components = new ArrayList<>();
-        String searchText = searchInput != null ? searchInput.getValue() : "";
-        List<Tag> allTags = TagManager.getInstance().searchTags(searchText);
+        List<Tag> allTags = getFilteredTags();
 
         int yPos = getY() + 60;
         int displayedCount = 0;
@@ -145,7 +149,14 @@ public class TagSelectionPanel extends AbstractWidget {
     // 获取当前过滤后的标签列表
     private List<Tag> getFilteredTags() {
         String searchText = searchInput != null ? searchInput.getValue() : "";
-        return TagManager.getInstance().searchTags(searchText);
+        TagManager tagManager = TagManager.getInstance();
+        long namesVersion = tagManager.getNamesVersion();
+        if (!searchText.equals(cachedSearchText) || namesVersion != cachedNamesVersion) {
+            cachedFilteredTags = tagManager.searchTags(searchText);
+            cachedSearchText = searchText;
+            cachedNamesVersion = namesVersion;
+        }
+        return cachedFilteredTags;
     }
 
     // 处理按键输入
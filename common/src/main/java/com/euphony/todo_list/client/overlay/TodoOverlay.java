@@ -2,6 +2,10 @@ package com.euphony.todo_list.client.overlay;
 
 import com.euphony.todo_list.todo.TodoItem;
 import com.euphony.todo_list.todo.TodoListManager;
+import com.euphony.todo_list.todo.TodoPage;
+import com.euphony.todo_list.todo.TodoQuery;
+import com.euphony.todo_list.todo.TodoSnapshot;
+import com.euphony.todo_list.todo.TodoSort;
 import net.minecraft.client.DeltaTracker;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.Font;
@@ -22,6 +26,15 @@ public class TodoOverlay {
     private static final int ITEM_HEIGHT = 12;
     private static final int PADDING = 4;          // 减少内边距
     private static final int HEADER_HEIGHT = 16;   // 标题区域高度
+    // 最大高度内最多能显示的项目数量，只查询这么多
+    private static final int MAX_ITEMS = (MAX_HEIGHT - HEADER_HEIGHT - PADDING * 2) / ITEM_HEIGHT;
+    private static final TodoQuery OPEN_ONLY = TodoQuery.parse("is:open");
+    private static final TodoQuery ALL = TodoQuery.parse("");
+
+    // 按快照版本缓存的显示页，清单没有变化时每帧不再重新查询
+    private static TodoPage cachedPage = new TodoPage(List.of(), 0, 0, true);
+    private static long cachedVersion = -1;
+    private static boolean cachedOnlyIncomplete;
 
     public static void setVisible(boolean visible) {
         isVisible = visible;
@@ -59,21 +72,11 @@ public class TodoOverlay {
 
         // 获取待办事项并应用过滤
         TodoListManager manager = TodoListManager.getInstance();
-        List<TodoItem> allTodoItems = manager.getAllTodoItems();
-
-        // 根据过滤设置获取要显示的项目
-        List<TodoItem> todoItems;
-        if (showOnlyIncomplete) {
-            todoItems = allTodoItems.stream()
-                    .filter(item -> !item.isCompleted())
-                    .toList();
-        } else {
-            todoItems = allTodoItems;
-        }
+        TodoPage page = getDisplayPage(manager.getSnapshot());
 
         // 动态计算悬浮窗高度
-        int dynamicHeight = calculateOptimalHeight(todoItems.size());
-        int maxDisplayItems = Math.min(todoItems.size(), (dynamicHeight - HEADER_HEIGHT - PADDING * 2) / ITEM_HEIGHT);
+        int dynamicHeight = calculateOptimalHeight(page.total());
+        int maxDisplayItems = Math.min(page.items().size(), (dynamicHeight - HEADER_HEIGHT - PADDING * 2) / ITEM_HEIGHT);
 
         // 计算悬浮窗位置（屏幕右侧）
         int overlayX = screenWidth - OVERLAY_WIDTH - 10;
@@ -105,14 +108,15 @@ public class TodoOverlay {
 
         int currentY = overlayY + HEADER_HEIGHT;
 
-        if (todoItems.isEmpty()) {
-            // 没有待办事项时显示提示
-            Component emptyText = Component.translatable("todo_list.overlay_empty");
+        if (page.isEmpty()) {
+            // 没有待办事项时显示提示，加载中时显示加载提示
+            Component emptyText = Component.translatable(manager.hasLoadFailed() ? "todo_list.load_failed" :
+                    manager.isLoading() ? "todo_list.loading" : "todo_list.overlay_empty");
             guiGraphics.drawString(font, emptyText, overlayX + 2, currentY, 0xAAAAAA);
         } else {
             // 显示待办事项
             for (int i = 0; i < maxDisplayItems; i++) {
-                TodoItem item = todoItems.get(i);
+                TodoItem item = page.items().get(i);
 
                 // 绘制复选框符号
                 String checkbox = item.isCompleted() ? "☑" : "☐";
@@ -156,13 +160,26 @@ public class TodoOverlay {
             }
 
             // 如果有更多项目，显示省略号和数量
-            if (todoItems.size() > maxDisplayItems) {
-                String moreText = "+" + (todoItems.size() - maxDisplayItems) + " more...";
+            if (page.total() > maxDisplayItems) {
+                String moreText = "+" + (page.total() - maxDisplayItems) + " more...";
                 guiGraphics.drawString(font, moreText, overlayX + 2, currentY, 0xAAAAAA);
             }
         }
     }
 
+    /**
+     * 根据过滤设置获取要显示的第一页和总数，快照版本和过滤设置都没变时直接使用上次的结果
+     */
+    private static TodoPage getDisplayPage(TodoSnapshot snapshot) {
+        if (snapshot.getVersion() != cachedVersion || showOnlyIncomplete != cachedOnlyIncomplete) {
+            cachedPage = TodoListManager.getInstance().queryPage(
+                    showOnlyIncomplete ? OPEN_ONLY : ALL, null, TodoSort.ADDED, 0, MAX_ITEMS);
+            cachedVersion = snapshot.getVersion();
+            cachedOnlyIncomplete = showOnlyIncomplete;
+        }
+        return cachedPage;
+    }
+
     /**
      * 根据待办事项数量计算最佳高度
      */
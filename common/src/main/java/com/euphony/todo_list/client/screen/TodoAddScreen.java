@@ -11,15 +11,23 @@ import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.CommonComponents;
 import net.minecraft.network.chat.Component;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 public class TodoAddScreen extends Screen {
+    private static final DateTimeFormatter DUE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int INVALID_TEXT_COLOR = 0xFF5555;
+    private static final int DEFAULT_TEXT_COLOR = 0xE0E0E0;
+
     private final HeaderAndFooterLayout layout = new HeaderAndFooterLayout(this);
 
     EditBox titleEditBox;
     MultiLineEditBox descriptionEditBox;
+    EditBox dueDateEditBox;
     TagSelectionPanel tagSelectionPanel;
     private List<Tag> selectedTags = new ArrayList<>();
 
@@ -113,23 +121,51 @@ public class TodoAddScreen extends Screen {
         descLabel.setColor(0xFFFFFF);
         addRenderableWidget(descLabel);
 
-        // 描述输入框
+        // 描述输入框，留出截止时间一行的空间
         descriptionEditBox = addRenderableWidget(new MultiLineEditBox(
                 this.font,
                 formX,
                 descY,
                 formWidth,
-                80,
+                64,
                 Component.translatable("todo_list.add_item"),
                 Component.translatable("todo_list.description_hint")
         ));
 
+        // 截止时间输入框，留空表示不设截止时间，格式不正确时显示为红色
+        int dueY = descY + 72;
+        int dueLabelWidth = 50;
+        StringWidget dueLabel = new StringWidget(
+            formX, dueY + 5, dueLabelWidth, 12,
+            Component.translatable("todo_list.due_label"),
+            this.font
+        );
+        dueLabel.setColor(0xFFFFFF);
+        dueLabel.alignLeft();
+        addRenderableWidget(dueLabel);
+
+        dueDateEditBox = addRenderableWidget(new EditBox(
+                this.font,
+                formX + dueLabelWidth,
+                dueY,
+                formWidth - dueLabelWidth,
+                18,
+                Component.translatable("todo_list.due_label")
+        ));
+        dueDateEditBox.setMaxLength(16);
+        dueDateEditBox.setHint(Component.translatable("todo_list.due_hint"));
+        dueDateEditBox.setResponder(value -> dueDateEditBox.setTextColor(
+                isValidDueDate(value) ? DEFAULT_TEXT_COLOR : INVALID_TEXT_COLOR));
+
         // 如果是编辑模式，预填充现有数据
         if (isEditMode && editingItemId != null) {
             TodoItem item = TodoListManager.getInstance().getTodoItem(editingItemId);
             if (item != null) {
                 titleEditBox.setValue(item.getTitle());
                 descriptionEditBox.setValue(item.getDescription());
+                if (item.getDueDate() != null) {
+                    dueDateEditBox.setValue(item.getDueDate().format(DUE_FORMATTER));
+                }
                 selectedTags = new ArrayList<>(item.getTags());
 
                 // 设置初始化标志，防止无限递归
@@ -145,7 +181,7 @@ public class TodoAddScreen extends Screen {
 
                 // 创建时间标签
                 StringWidget createdTimeLabel = new StringWidget(
-                    formX, descY + 90, formWidth, 12,
+                    formX, descY + 96, formWidth, 12,
                     createdTimeComponent,
                     this.font
                 );
@@ -156,7 +192,7 @@ public class TodoAddScreen extends Screen {
         }
 
         // 按钮区域 - 如果是编辑模式需要为创建时间留出空间
-        int buttonY = isEditMode ? descY + 110 : descY + 100;
+        int buttonY = isEditMode ? descY + 114 : descY + 100;
         int buttonWidth = 80;
         int buttonSpacing = 20;
 
@@ -170,14 +206,15 @@ public class TodoAddScreen extends Screen {
                 button -> {
                     String title = titleEditBox.getValue();
                     String description = descriptionEditBox.getValue();
-                    if (!title.isEmpty()) {
+                    String dueText = dueDateEditBox.getValue();
+                    if (!title.isEmpty() && isValidDueDate(dueText)) {
+                        LocalDateTime dueDate = parseDueDate(dueText);
                         if (isEditMode && editingItemId != null) {
                             // 更新现有项目
-                            TodoListManager.getInstance().updateTodoItem(editingItemId, title, description, selectedTags);
+                            TodoListManager.getInstance().updateTodoItem(editingItemId, title, description, selectedTags, dueDate);
                         } else {
                             // 添加新项目
-                            TodoItem todoItem = new TodoItem(title, description);
-                            todoItem.setTags(selectedTags);
+                            TodoItem todoItem = new TodoItem(title, description, selectedTags, dueDate);
                             TodoListManager.getInstance().addTodoItem(todoItem);
                         }
                         this.onClose();
@@ -206,6 +243,23 @@ public class TodoAddScreen extends Screen {
         this.setInitialFocus(titleEditBox);
     }
 
+    private static boolean isValidDueDate(String text) {
+        if (text.isBlank()) return true;
+        try {
+            LocalDateTime.parse(text.trim(), DUE_FORMATTER);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析截止时间，留空返回 null；调用前应先用 isValidDueDate 检查
+     */
+    private static LocalDateTime parseDueDate(String text) {
+        return text.isBlank() ? null : LocalDateTime.parse(text.trim(), DUE_FORMATTER);
+    }
+
     @Override
     public boolean mouseClicked(double mouseX, double mouseY, int button) {
         // 先让标签面板处理鼠标点击
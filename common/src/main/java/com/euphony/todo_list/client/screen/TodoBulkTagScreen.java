@@ -0,0 +1,113 @@
+package com.euphony.todo_list.client.screen;
+
+import com.euphony.todo_list.client.components.TagSelectionPanel;
+import com.euphony.todo_list.todo.Tag;
+import com.euphony.todo_list.todo.TodoListManager;
+import net.minecraft.client.gui.components.AbstractWidget;
+import net.minecraft.client.gui.components.Button;
+import net.minecraft.client.gui.components.StringWidget;
+import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.network.chat.CommonComponents;
+import net.minecraft.network.chat.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 给列表界面中选中的多个待办事项加上或去掉标签，作为一次批量修改
+ */
+public class TodoBulkTagScreen extends Screen {
+    private final Screen parentScreen;
+    private final List<UUID> ids;
+    private TagSelectionPanel tagSelectionPanel;
+    private List<Tag> selectedTags = new ArrayList<>();
+
+    public TodoBulkTagScreen(Screen parentScreen, List<UUID> ids) {
+        super(Component.translatable("todo_list.bulk.tag_title", ids.size()));
+        this.parentScreen = parentScreen;
+        this.ids = ids;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+
+        // 与添加界面相同的布局：左侧标签面板，右侧按钮
+        int panelWidth = 120;
+        int formWidth = 160;
+        int spacing = 20;
+        int leftMargin = 10;
+        int centerY = this.height / 2;
+        int formX = leftMargin + panelWidth + spacing;
+
+        tagSelectionPanel = new TagSelectionPanel(
+            leftMargin, centerY - 100, panelWidth, 200,
+            this, selectedTags,
+            (tags) -> this.selectedTags = new ArrayList<>(tags)
+        );
+        addRenderableWidget(tagSelectionPanel);
+
+        StringWidget titleWidget = new StringWidget(formX, centerY - 60, formWidth, 16, this.title, this.font);
+        titleWidget.setColor(0xFFFFFF);
+        titleWidget.alignCenter();
+        addRenderableWidget(titleWidget);
+
+        // 加上勾选的标签
+        addRenderableWidget(Button.builder(
+                Component.translatable("todo_list.bulk.add_tags"),
+                button -> {
+                    TodoListManager.getInstance().updateTags(ids, selectedTags, List.of());
+                    this.onClose();
+                }
+        ).pos(formX, centerY - 30)
+                .size(formWidth, 20)
+                .build());
+
+        // 去掉勾选的标签
+        addRenderableWidget(Button.builder(
+                Component.translatable("todo_list.bulk.remove_tags"),
+                button -> {
+                    TodoListManager.getInstance().updateTags(ids, List.of(), selectedTags);
+                    this.onClose();
+                }
+        ).pos(formX, centerY - 5)
+                .size(formWidth, 20)
+                .build());
+
+        addRenderableWidget(Button.builder(
+                CommonComponents.GUI_CANCEL,
+                button -> this.onClose()
+        ).pos(formX, centerY + 30)
+                .size(formWidth, 20)
+                .build());
+
+        List<AbstractWidget> abstractWidgets = tagSelectionPanel.createChildComponents();
+        for (AbstractWidget abstractWidget : abstractWidgets) {
+            addRenderableWidget(abstractWidget);
+        }
+    }
+
+    @Override
+    public boolean mouseClicked(double mouseX, double mouseY, int button) {
+        // 先让标签面板处理鼠标点击
+        if (tagSelectionPanel != null && tagSelectionPanel.mouseClicked(mouseX, mouseY, button)) {
+            return true;
+        }
+        return super.mouseClicked(mouseX, mouseY, button);
+    }
+
+    @Override
+    public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+        // 先让标签面板处理按键事件
+        if (tagSelectionPanel != null && tagSelectionPanel.handleKeyPress(keyCode, scanCode, modifiers)) {
+            return true;
+        }
+        return super.keyPressed(keyCode, scanCode, modifiers);
+    }
+
+    @Override
+    public void onClose() {
+        this.minecraft.setScreen(parentScreen);
+    }
+}
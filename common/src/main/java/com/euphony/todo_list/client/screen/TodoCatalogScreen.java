@@ -0,0 +1,131 @@
+package com.euphony.todo_list.client.screen;
+
+import com.euphony.todo_list.data.TodoCatalog;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.gui.components.Button;
+import net.minecraft.client.gui.components.EditBox;
+import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.network.chat.Component;
+import net.minecraft.util.Mth;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 跨世界搜索界面，查询所有世界的待办事项目录
+ * 搜索框为空时列出每个世界的摘要，输入关键字后列出匹配的待办事项
+ */
+public class TodoCatalogScreen extends Screen {
+    private static final int LINE_HEIGHT = 12;
+
+    private final Screen parentScreen;
+    private EditBox searchBox;
+    private List<Component> lines = new ArrayList<>();
+    private int scrollOff;
+    private int requestId; // 丢弃过期的查询结果
+
+    public TodoCatalogScreen(Screen parentScreen) {
+        super(Component.translatable("todo_list.catalog_title"));
+        this.parentScreen = parentScreen;
+    }
+
+    @Override
+    protected void init() {
+        super.init();
+        int i = this.width / 2;
+
+        // 搜索框
+        String previous = searchBox != null ? searchBox.getValue() : "";
+        searchBox = new EditBox(this.font, i - 120, 40, 200, 20, Component.translatable("todo_list.search"));
+        searchBox.setHint(Component.translatable("todo_list.catalog_search_hint"));
+        searchBox.setValue(previous);
+        searchBox.setResponder(text -> refreshResults());
+        addRenderableWidget(searchBox);
+
+        // 返回按钮
+        addRenderableWidget(Button.builder(
+            Component.translatable("todo_list.back"),
+            button -> this.onClose()
+        ).pos(i + 85, 40)
+        .size(40, 20)
+        .build());
+
+        refreshResults();
+    }
+
+    private void refreshResults() {
+        int id = ++requestId;
+        String query = searchBox.getValue().trim();
+        scrollOff = 0;
+
+        if (query.isEmpty()) {
+            TodoCatalog.getWorlds().thenAcceptAsync(worlds -> {
+                if (id != requestId) return;
+                List<Component> worldLines = new ArrayList<>();
+                for (TodoCatalog.WorldSummary world : worlds) {
+                    worldLines.add(Component.translatable("todo_list.catalog_world",
+                        world.getWorld(), world.getOpenCount(), world.getCompletedCount()));
+                }
+                lines = worldLines;
+            }, Minecraft.getInstance());
+            return;
+        }
+
+        TodoCatalog.search(query).thenAcceptAsync(results -> {
+            if (id != requestId) return;
+            List<Component> resultLines = new ArrayList<>();
+            for (TodoCatalog.SearchResult result : results) {
+                String checkbox = result.isCompleted() ? "☑" : "☐";
+                resultLines.add(Component.literal(checkbox + " " + result.getTitle() + "  ")
+                    .append(Component.literal("[" + result.getWorld() + "]").withColor(0xAAAAAA)));
+            }
+            lines = resultLines;
+        }, Minecraft.getInstance());
+    }
+
+    @Override
+    public void render(GuiGraphics guiGraphics, int mouseX, int mouseY, float partialTick) {
+        super.render(guiGraphics, mouseX, mouseY, partialTick);
+
+        // 绘制标题
+        guiGraphics.drawCenteredString(this.font, this.title, this.width / 2, 20, 0xFFFFFF);
+
+        int top = 70;
+        int visibleLines = getVisibleLines();
+        if (lines.isEmpty()) {
+            guiGraphics.drawCenteredString(this.font,
+                Component.translatable(searchBox.getValue().isBlank() ? "todo_list.catalog_empty" : "todo_list.catalog_no_results"),
+                this.width / 2, top, 0xAAAAAA);
+            return;
+        }
+
+        int x = this.width / 2 - 120;
+        for (int i = 0; i < visibleLines && scrollOff + i < lines.size(); i++) {
+            guiGraphics.drawString(this.font, lines.get(scrollOff + i), x, top + i * LINE_HEIGHT, 0xFFFFFF);
+        }
+    }
+
+    @Override
+    public boolean mouseScrolled(double mouseX, double mouseY, double scrollX, double scrollY) {
+        if (super.mouseScrolled(mouseX, mouseY, scrollX, scrollY)) {
+            return true;
+        }
+        int maxScroll = Math.max(0, lines.size() - getVisibleLines());
+        this.scrollOff = Mth.clamp((int)(this.scrollOff - scrollY), 0, maxScroll);
+        return true;
+    }
+
+    private int getVisibleLines() {
+        return Math.max(1, (this.height - 100) / LINE_HEIGHT);
+    }
+
+    @Override
+    public void onClose() {
+        if (parentScreen != null) {
+            this.minecraft.setScreen(parentScreen);
+        } else {
+            super.onClose();
+        }
+    }
+}
@@ -3,31 +3,54 @@ package com.euphony.todo_list.client.screen;
 import com.euphony.todo_list.client.components.TagDisplayWidget;
 import com.euphony.todo_list.client.overlay.TodoOverlay;
 import com.euphony.todo_list.config.TodoConfig;
+import com.euphony.todo_list.data.TodoArchive;
 import com.euphony.todo_list.todo.Tag;
+import com.euphony.todo_list.todo.TagManager;
 import com.euphony.todo_list.todo.TodoItem;
 import com.euphony.todo_list.todo.TodoListManager;
+import com.euphony.todo_list.todo.TodoPage;
+import com.euphony.todo_list.todo.TodoQuery;
+import com.euphony.todo_list.todo.TodoSort;
 import com.euphony.todo_list.utils.Utils;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.components.*;
+import net.minecraft.client.gui.screens.ConfirmScreen;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.Component;
 import net.minecraft.util.Mth;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public class TodoListViewScreen extends Screen {
     public static final WidgetSprites ADD_SPRITES = new WidgetSprites(Utils.prefix("add"), Utils.prefix("add_disabled"), Utils.prefix("add_highlighted"));
 
+    // 排序方式在重新打开界面后保持不变
+    private static TodoSort sortOrder = TodoSort.ADDED;
+
     private int scrollOff;
     private final Screen parentScreen;
     private EditBox searchBox;
+    private Button clearButton;
+    // 点击标题选中的待办事项，选中时搜索框位置换成批量操作按钮
+    private final Set<UUID> selection = new LinkedHashSet<>();
+    private List<Button> bulkButtons = new ArrayList<>();
     private List<Tag> filterTags = new ArrayList<>();
-    private List<TodoItem> filteredTodoItems = new ArrayList<>();
+    // 搜索框内容或标签名称改变时才重新解析，滚动和刷新使用同一个查询，可以命中查询缓存
+    private String queryText = "";
+    private long queryNamesVersion = -1;
+    private TodoQuery query = TodoQuery.parse("");
+    // 当前滚动位置可见的一页和匹配总数，不保存完整的筛选结果
+    private TodoPage page = new TodoPage(List.of(), 0, 0, true);
     private final int maxVisibleTodos = 4; // 最多显示4个todo
     private boolean isDragging = false; // 添加拖拽状态\
     private List<AbstractWidget> todoRenderables = new ArrayList<>();
+    private int archiveGeneration = TodoArchive.getInstance().getGeneration();
+    private boolean wasLoading = TodoListManager.getInstance().isLoading();
 
     public TodoListViewScreen(Screen parentScreen) {
         super(Component.translatable("todo_list.title"));
@@ -43,6 +66,7 @@ public class TodoListViewScreen extends Screen {
         // 搜索框
         searchBox = new EditBox(this.font, i - 120, 40, 200, 20, Component.translatable("todo_list.search"));
         searchBox.setHint(Component.translatable("todo_list.search_hint"));
+        searchBox.setTooltip(Tooltip.create(Component.translatable("todo_list.search_syntax")));
         // 添加实时搜索功能
         searchBox.setResponder(text -> {
             refreshTodoList();
@@ -50,7 +74,7 @@ public class TodoListViewScreen extends Screen {
         addRenderableWidget(searchBox);
 
         // 清除搜索按钮
-        Button clearButton = Button.builder(
+        clearButton = Button.builder(
             Component.translatable("todo_list.clear"),
             button -> {
                 searchBox.setValue("");
@@ -62,6 +86,63 @@ public class TodoListViewScreen extends Screen {
         .build();
         addRenderableWidget(clearButton);
 
+        // 批量操作按钮，每个操作只修改一次清单、保存一次
+        bulkButtons = new ArrayList<>();
+        bulkButtons.add(Button.builder(
+            Component.translatable("todo_list.bulk.complete"),
+            button -> {
+                TodoListManager.getInstance().setCompleted(List.copyOf(selection), true);
+                refreshTodoList();
+            }
+        ).build());
+        bulkButtons.add(Button.builder(
+            Component.translatable("todo_list.bulk.reopen"),
+            button -> {
+                TodoListManager.getInstance().setCompleted(List.copyOf(selection), false);
+                refreshTodoList();
+            }
+        ).build());
+        bulkButtons.add(Button.builder(
+            Component.translatable("todo_list.bulk.tags"),
+            button -> Minecraft.getInstance().setScreen(new TodoBulkTagScreen(this, List.copyOf(selection)))
+        ).build());
+        bulkButtons.add(Button.builder(
+            Component.translatable("todo_list.bulk.delete"),
+            button -> Minecraft.getInstance().setScreen(new ConfirmScreen(
+                confirmed -> {
+                    if (confirmed) {
+                        TodoListManager.getInstance().removeTodoItems(List.copyOf(selection));
+                        selection.clear();
+                    }
+                    Minecraft.getInstance().setScreen(this);
+                },
+                Component.translatable("todo_list.bulk.delete_title", selection.size()),
+                Component.translatable("todo_list.bulk.delete_message")
+            ))
+        ).build());
+        bulkButtons.add(Button.builder(
+            Component.translatable("todo_list.bulk.all"),
+            button -> {
+                for (TodoItem item : TodoListManager.getInstance().queryTodoItems(query, filterTags, Integer.MAX_VALUE)) {
+                    selection.add(item.getId());
+                }
+                updateBulkBar();
+            }
+        ).tooltip(Tooltip.create(Component.translatable("todo_list.bulk.all_tooltip")))
+        .build());
+        bulkButtons.add(Button.builder(
+            Component.translatable("todo_list.bulk.cancel"),
+            button -> {
+                selection.clear();
+                updateBulkBar();
+            }
+        ).build());
+        for (int k = 0; k < bulkButtons.size(); k++) {
+            Button bulkButton = bulkButtons.get(k);
+            bulkButton.setRectangle(40, 20, i - 125 + k * 42, 40);
+            addRenderableWidget(bulkButton);
+        }
+
         this.addRenderableWidget(new ImageButton(this.width - 30, 8, 18, 18,
                 ADD_SPRITES,
                 button -> Minecraft.getInstance().setScreen(new TodoAddScreen(null, this)),
@@ -103,7 +184,40 @@ public class TodoListViewScreen extends Screen {
 
         this.addRenderableWidget(overlayFilterButton);
 
-        filteredTodoItems = TodoListManager.getInstance().getFilteredTodoItems(filterTags, "");
+        // 跨世界搜索按钮 - 在过滤开关右侧
+        Button catalogButton = Button.builder(
+            Component.translatable("todo_list.catalog_button"),
+            button -> Minecraft.getInstance().setScreen(new TodoCatalogScreen(this))
+        ).pos(160, 10)
+        .size(70, 20)
+        .build();
+
+        this.addRenderableWidget(catalogButton);
+
+        // 排序切换按钮 - 在跨世界搜索按钮右侧，点击切换到下一种排序方式
+        Button sortButton = Button.builder(
+            sortButtonText(),
+            button -> {
+                sortOrder = sortOrder.next();
+                button.setMessage(sortButtonText());
+                scrollOff = 0;
+                refreshTodoList();
+            }
+        ).pos(235, 10)
+        .size(90, 20)
+        .build();
+
+        this.addRenderableWidget(sortButton);
+
+        // 上次后台加载失败时，打开界面重新读取
+        if (TodoListManager.getInstance().hasLoadFailed()) {
+            TodoListManager.getInstance().retryLoading();
+        }
+
+        queryText = "";
+        query = TodoQuery.parse("");
+        loadPage();
+        updateBulkBar();
 
         todoRenderables = renderTodoItems(this.height / 2);
         for(AbstractWidget widget : todoRenderables) {
@@ -113,7 +227,19 @@ public class TodoListViewScreen extends Screen {
 
     private void refreshTodoList() {
         String searchText = searchBox != null ? searchBox.getValue() : "";
-        filteredTodoItems = TodoListManager.getInstance().getFilteredTodoItems(filterTags, searchText);
+        // 搜索和筛选需要包含已归档的待办事项，按需在后台加载
+        if (!searchText.isEmpty() || !filterTags.isEmpty()) {
+            TodoArchive.getInstance().requestLoad();
+        }
+        // #名称 是否为标签条件取决于标签是否存在，标签增删或改名后重新解析
+        long namesVersion = TagManager.getInstance().getNamesVersion();
+        if (!searchText.equals(queryText) || namesVersion != queryNamesVersion) {
+            queryText = searchText;
+            queryNamesVersion = namesVersion;
+            query = TodoQuery.parse(searchText);
+        }
+        loadPage();
+        updateBulkBar();
         for(AbstractWidget widget : todoRenderables) {
             this.removeWidget(widget);
         }
@@ -123,6 +249,37 @@ public class TodoListViewScreen extends Screen {
         }
     }
 
+    /**
+     * 只查询当前滚动位置可见的一页，列表变短后把滚动位置限制在范围内
+     */
+    private void loadPage() {
+        TodoListManager manager = TodoListManager.getInstance();
+        page = manager.queryPage(query, filterTags, sortOrder, scrollOff, maxVisibleTodos);
+        int maxScroll = Math.max(0, page.total() - maxVisibleTodos);
+        if (scrollOff > maxScroll) {
+            scrollOff = maxScroll;
+            page = manager.queryPage(query, filterTags, sortOrder, scrollOff, maxVisibleTodos);
+        }
+    }
+
+    /**
+     * 有选中项时显示批量操作按钮，否则显示搜索框
+     */
+    private void updateBulkBar() {
+        // 已被删除的待办事项不再算作选中
+        selection.removeIf(id -> TodoListManager.getInstance().getTodoItem(id) == null);
+        boolean selecting = !selection.isEmpty();
+        searchBox.visible = !selecting;
+        clearButton.visible = !selecting;
+        for (Button bulkButton : bulkButtons) {
+            bulkButton.visible = selecting;
+        }
+    }
+
+    private static Component sortButtonText() {
+        return Component.translatable("todo_list.sort", Component.translatable(sortOrder.getTranslationKey()));
+    }
+
     private List<AbstractWidget> renderTodoItems(int centerY) {
         List<AbstractWidget> widgets = new ArrayList<>();
         TodoConfig config = TodoConfig.getInstance();
@@ -138,103 +295,118 @@ public class TodoListViewScreen extends Screen {
         final int ellipsisWidth = this.font.width(ellipsis);
 
         int displayIndex = 0;
-        for(int itemIndex = 0; itemIndex < filteredTodoItems.size(); itemIndex++) {
-            TodoItem todoItem = filteredTodoItems.get(itemIndex);
-
-            // 只显示在当前滚动范围内的项目
-            if (!this.canScroll(filteredTodoItems.size()) || (itemIndex >= this.scrollOff && itemIndex < maxVisibleTodos + this.scrollOff)) {
-                int yPos = centerY - 50 + displayIndex * 35;
-                boolean hasTags = !todoItem.getTags().isEmpty();
-
-                // 优化文本截断逻辑
-                String titleText = todoItem.getTitle();
-                int textWidth = this.font.width(titleText);
-
-                if (textWidth > availableWidth) {
-                    // 使用二分查找优化文本截断
-                    int left = 0, right = titleText.length();
-                    while (left < right) {
-                        int mid = (left + right + 1) / 2;
-                        String substr = titleText.substring(0, mid);
-                        if (this.font.width(substr) + ellipsisWidth <= availableWidth) {
-                            left = mid;
-                        } else {
-                            right = mid - 1;
-                        }
+        // 页中只有当前滚动范围内的项目
+        for (TodoItem todoItem : page.items()) {
+            int yPos = centerY - 50 + displayIndex * 35;
+            boolean hasTags = todoItem.getTagCount() > 0;
+
+            // 优化文本截断逻辑
+            String titleText = todoItem.getTitle();
+            int textWidth = this.font.width(titleText);
+
+            if (textWidth > availableWidth) {
+                // 使用二分查找优化文本截断
+                int left = 0, right = titleText.length();
+                while (left < right) {
+                    int mid = (left + right + 1) / 2;
+                    String substr = titleText.substring(0, mid);
+                    if (this.font.width(substr) + ellipsisWidth <= availableWidth) {
+                        left = mid;
+                    } else {
+                        right = mid - 1;
                     }
-                    titleText = titleText.substring(0, left) + ellipsis;
-                    textWidth = this.font.width(titleText); // 重新计算截断后的宽度
-                }
-
-                Component titleComponent = todoItem.isCompleted() ?
-                    Component.literal("§m" + titleText) :
-                    Component.literal(titleText);
-
-                // 根据配置和是否有标签决定Y位置
-                int titleY = hasTags ? yPos + 2 : yPos + 8;
-
-                // 创建标题widget
-                StringWidget titleWidget;
-                if (isLeftAlign) {
-                    titleWidget = new StringWidget(baseX, titleY, availableWidth, 12, titleComponent, this.font);
-                    titleWidget.alignLeft();
-                } else {
-                    int centeredX = baseX + (availableWidth - textWidth) / 2;
-                    titleWidget = new StringWidget(centeredX, titleY, textWidth, 12, titleComponent, this.font);
-                }
-                widgets.add(titleWidget);
-
-                // 如果有标签，添加标签显示
-                if (hasTags) {
-                    TagDisplayWidget tagDisplay = new TagDisplayWidget(
-                        baseX, yPos + 14,
-                        150, 12,
-                        todoItem.getTags(),
-                        isLeftAlign
-                    );
-                    widgets.add(tagDisplay);
                 }
+                titleText = titleText.substring(0, left) + ellipsis;
+                textWidth = this.font.width(titleText); // 重新计算截断后的宽度
+            }
 
-                // 复选框
-                Checkbox checkbox = Checkbox.builder(
-                                Component.empty(),
-                                this.font
-                        ).pos(checkboxX, yPos + 5)
-                        .selected(todoItem.isCompleted())
-                        .onValueChange((cb, selected) -> {
-                            TodoListManager.getInstance().toggleCompleted(todoItem.getId());
-                            refreshTodoList();
-                        })
-                        .build();
-                widgets.add(checkbox);
-
-                // 编辑按钮
-                Button editBtn = Button.builder(
-                                Component.translatable("todo_list.edit"),
-                                button -> Minecraft.getInstance().setScreen(new TodoAddScreen(todoItem, this))
-                        ).pos(editBtnX, yPos)
-                        .size(35, 20)
-                        .build();
-                widgets.add(editBtn);
-
-                // 删除按钮
-                Button deleteBtn = Button.builder(
-                                Component.translatable("todo_list.delete"),
-                                button -> {
-                                    TodoListManager.getInstance().removeTodoItem(todoItem.getId());
-                                    refreshTodoList();
-                                }
-                        ).pos(deleteBtnX, yPos)
-                        .size(35, 20)
-                        .build();
-                widgets.add(deleteBtn);
-
-                displayIndex++;
+            Component titleComponent = todoItem.isCompleted() ?
+                Component.literal("§m" + titleText) :
+                Component.literal(titleText);
+
+            // 根据配置和是否有标签决定Y位置
+            int titleY = hasTags ? yPos + 2 : yPos + 8;
+
+            // 创建标题widget
+            StringWidget titleWidget;
+            if (isLeftAlign) {
+                titleWidget = new StringWidget(baseX, titleY, availableWidth, 12, titleComponent, this.font);
+                titleWidget.alignLeft();
+            } else {
+                int centeredX = baseX + (availableWidth - textWidth) / 2;
+                titleWidget = new StringWidget(centeredX, titleY, textWidth, 12, titleComponent, this.font);
             }
+            widgets.add(titleWidget);
+
+            // 如果有标签，添加标签显示
+            if (hasTags) {
+                TagDisplayWidget tagDisplay = new TagDisplayWidget(
+                    baseX, yPos + 14,
+                    150, 12,
+                    todoItem.getTags(),
+                    isLeftAlign
+                );
+                widgets.add(tagDisplay);
+            }
+
+            // 复选框
+            Checkbox checkbox = Checkbox.builder(
+                            Component.empty(),
+                            this.font
+                    ).pos(checkboxX, yPos + 5)
+                    .selected(todoItem.isCompleted())
+                    .onValueChange((cb, selected) -> {
+                        TodoListManager.getInstance().toggleCompleted(todoItem.getId());
+                        refreshTodoList();
+                    })
+                    .build();
+            widgets.add(checkbox);
+
+            // 编辑按钮
+            Button editBtn = Button.builder(
+                            Component.translatable("todo_list.edit"),
+                            button -> Minecraft.getInstance().setScreen(new TodoAddScreen(todoItem, this))
+                    ).pos(editBtnX, yPos)
+                    .size(35, 20)
+                    .build();
+            widgets.add(editBtn);
+
+            // 删除按钮
+            Button deleteBtn = Button.builder(
+                            Component.translatable("todo_list.delete"),
+                            button -> {
+                                TodoListManager.getInstance().removeTodoItem(todoItem.getId());
+                                refreshTodoList();
+                            }
+                    ).pos(deleteBtnX, yPos)
+                    .size(35, 20)
+                    .build();
+            widgets.add(deleteBtn);
+
+            displayIndex++;
         }
         return widgets;
     }
 
+    @Override
+    public void tick() {
+        super.tick();
+
+        // 待办清单加载完成后刷新列表
+        boolean loading = TodoListManager.getInstance().isLoading();
+        if (wasLoading && !loading) {
+            refreshTodoList();
+        }
+        wasLoading = loading;
+
+        // 归档加载或卸载后刷新列表
+        int generation = TodoArchive.getInstance().getGeneration();
+        if (generation != archiveGeneration) {
+            archiveGeneration = generation;
+            refreshTodoList();
+        }
+    }
+
     @Override
     public void render(GuiGraphics guiGraphics, int mouseX, int mouseY, float partialTick) {
         super.render(guiGraphics, mouseX, mouseY, partialTick);
@@ -243,14 +415,19 @@ public class TodoListViewScreen extends Screen {
         guiGraphics.drawCenteredString(this.font, this.title, this.width / 2, 20, 0xFFFFFF);
 
         // 绘制滚动条
-        if (filteredTodoItems.size() > maxVisibleTodos) {
+        if (page.total() > maxVisibleTodos) {
             renderScrollbar(guiGraphics);
         }
 
-        // 绘制搜索结果信息
-        if (searchBox != null && !searchBox.getValue().isEmpty()) {
+        // 绘制选中数量或搜索结果信息
+        if (!selection.isEmpty()) {
+            guiGraphics.drawCenteredString(this.font,
+                Component.translatable("todo_list.bulk.selected", selection.size()),
+                this.width / 2, 65, 0xAAAAAA);
+        } else if (searchBox != null && !searchBox.getValue().isEmpty()) {
             Component searchInfo = Component.translatable("todo_list.search_results",
-                filteredTodoItems.size(), TodoListManager.getInstance().getAllTodoItems().size());
+                page.exact() ? String.valueOf(page.total()) : "~" + page.total(),
+                TodoListManager.getInstance().getSnapshot().size());
             guiGraphics.drawCenteredString(this.font, searchInfo, this.width / 2, 65, 0xAAAAAA);
         }
 
@@ -258,7 +435,22 @@ public class TodoListViewScreen extends Screen {
         if (!filterTags.isEmpty()) {
             Component filterInfo = Component.translatable("todo_list.filtered_by_tags", filterTags.size());
             guiGraphics.drawCenteredString(this.font, filterInfo, this.width / 2,
-                searchBox.getValue().isEmpty() ? 65 : 75, 0xAAAAAA);
+                selection.isEmpty() && searchBox.getValue().isEmpty() ? 65 : 75, 0xAAAAAA);
+        }
+
+        // 待办清单还在后台加载时显示占位提示，加载失败时提示重新打开界面重试
+        TodoListManager manager = TodoListManager.getInstance();
+        if (manager.isLoading()) {
+            guiGraphics.drawCenteredString(this.font,
+                Component.translatable(manager.hasLoadFailed() ? "todo_list.load_failed" : "todo_list.loading"),
+                this.width / 2, this.height / 2, 0xAAAAAA);
+        }
+
+        // 绘制归档加载提示
+        if (TodoArchive.getInstance().isLoading()) {
+            guiGraphics.drawCenteredString(this.font,
+                Component.translatable("todo_list.archive_loading"),
+                this.width / 2, this.height - 45, 0xAAAAAA);
         }
 
         // 绘制说明文字
@@ -267,6 +459,20 @@ public class TodoListViewScreen extends Screen {
             this.width / 2, this.height - 30, 0xAAAAAA);
     }
 
+    @Override
+    public void renderBackground(GuiGraphics guiGraphics, int mouseX, int mouseY, float partialTick) {
+        super.renderBackground(guiGraphics, mouseX, mouseY, partialTick);
+
+        // 高亮选中的行，画在控件下面
+        int centerY = this.height / 2;
+        List<TodoItem> items = page.items();
+        for (int index = 0; index < items.size(); index++) {
+            if (!selection.contains(items.get(index).getId())) continue;
+            int yPos = centerY - 50 + index * 35;
+            guiGraphics.fill(this.width / 2 - 125, yPos - 2, this.width / 2 + 150, yPos + 28, 0x30FFFFFF);
+        }
+    }
+
     // 渲染滚动条
     private void renderScrollbar(GuiGraphics guiGraphics) {
         int centerY = this.height / 2;
@@ -278,7 +484,7 @@ public class TodoListViewScreen extends Screen {
         guiGraphics.fill(scrollbarX, scrollbarY, scrollbarX + 6, scrollbarY + scrollbarHeight, 0x40FFFFFF);
 
         // 滚动条滑块 - 参考村民界面的实现
-        int totalTodos = filteredTodoItems.size();
+        int totalTodos = page.total();
         if (totalTodos > maxVisibleTodos) {
             // 计算滑块高度和位置
             int maxScroll = totalTodos - maxVisibleTodos;
@@ -301,7 +507,7 @@ public class TodoListViewScreen extends Screen {
         if (super.mouseScrolled(mouseX, mouseY, scrollX, scrollY)) {
             return true;
         } else {
-            int totalTodos = filteredTodoItems.size();
+            int totalTodos = page.total();
             if (this.canScroll(totalTodos)) {
                 int maxScroll = totalTodos - maxVisibleTodos;
                 this.scrollOff = Mth.clamp((int)(this.scrollOff - scrollY), 0, maxScroll);
@@ -317,7 +523,7 @@ public class TodoListViewScreen extends Screen {
             int centerY = this.height / 2;
             int scrollbarY = centerY - 50;
             int scrollbarHeight = maxVisibleTodos * 35;
-            int totalTodos = filteredTodoItems.size();
+            int totalTodos = page.total();
             int maxScroll = totalTodos - maxVisibleTodos;
 
             // 计算滚动位置，参考村民界面的实现
@@ -328,7 +534,7 @@ public class TodoListViewScreen extends Screen {
             // 只有当滚动位置真的改变时才刷新
             if (newScrollOff != scrollOff) {
                 scrollOff = newScrollOff;
-                this.rebuildWidgets();
+                refreshTodoList();
             }
             return true;
         } else {
@@ -342,7 +548,7 @@ public class TodoListViewScreen extends Screen {
         isDragging = false;
 
         // 检查是否点击在滚动条上
-        if (filteredTodoItems.size() > maxVisibleTodos) {
+        if (page.total() > maxVisibleTodos) {
             int centerY = this.height / 2;
             int scrollbarX = this.width / 2 + 160;
             int scrollbarY = centerY - 50;
@@ -355,7 +561,28 @@ public class TodoListViewScreen extends Screen {
             }
         }
 
-        return super.mouseClicked(mouseX, mouseY, button);
+        if (super.mouseClicked(mouseX, mouseY, button)) {
+            return true;
+        }
+
+        // 点击标题区域切换选中状态
+        int rowX = this.width / 2 - 90;
+        if (mouseX >= rowX && mouseX < rowX + 150) {
+            int centerY = this.height / 2;
+            List<TodoItem> items = page.items();
+            for (int index = 0; index < items.size(); index++) {
+                int yPos = centerY - 50 + index * 35;
+                if (mouseY >= yPos && mouseY < yPos + 30) {
+                    UUID id = items.get(index).getId();
+                    if (!selection.remove(id)) {
+                        selection.add(id);
+                    }
+                    updateBulkBar();
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private boolean canScroll(int numTodos) {
@@ -14,6 +14,10 @@ import java.nio.file.Path;
 public class TodoConfig {
     private static TodoConfig instance;
     private static final String CONFIG_FILE_NAME = "todolist-config.toml";
+    private static final int DEFAULT_SAVE_DELAY_MS = 1000;
+    private static final int DEFAULT_JOURNAL_COMPACT_BYTES = 1024 * 1024;
+    private static final int DEFAULT_ARCHIVE_AFTER_DAYS = 30;
+    private static final int MAX_REMINDER_LEAD_MINUTES = 7 * 24 * 60;
 
     private FileConfig config;
 
@@ -42,6 +46,30 @@ public class TodoConfig {
         }
     }
 
+    public enum StorageFormat {
+        JSON("json"),
+        BINARY("binary");
+
+        private final String value;
+
+        StorageFormat(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public static StorageFormat fromString(String value) {
+            for (StorageFormat format : values()) {
+                if (format.getValue().equals(value)) {
+                    return format;
+                }
+            }
+            return JSON; // 默认值
+        }
+    }
+
     private TodoConfig() {
         load();
     }
@@ -104,6 +132,39 @@ public class TodoConfig {
                 #   "center" - Center align: Both titles and tags are centered
                 # Default value: "center"
                 text_alignment = "center"
+                
+                [storage]
+                # Quiet period in milliseconds before pending todo changes are written to disk
+                # Bursts of edits within this window are merged into a single save
+                # Default value: 1000
+                save_delay_ms = 1000
+                # Snapshot file format
+                # Available options:
+                #   "json"   - Human readable todos.json and tags.json
+                #   "binary" - Compact todos.bin, much smaller and faster to load for large lists
+                # Existing data is converted automatically on the next save after switching
+                # Default value: "json"
+                format = "json"
+                # Append each change to an operation journal (todos.journal) instead of rewriting todos.json
+                # Recommended for very large lists; the journal is folded back into todos.json in the background
+                # Default value: false
+                journal_enabled = false
+                # Journal size in bytes after which it is compacted into a new snapshot
+                # Default value: 1048576
+                journal_compact_bytes = 1048576
+                # Completed todos older than this many days are moved to monthly files under archive/
+                # Archived todos are only loaded when searching or filtering; set to 0 to disable
+                # Default value: 30
+                archive_after_days = 30
+                
+                [reminders]
+                # Show a toast and a chat message when an open todo reaches its due date
+                # Todos that are already overdue when joining a world are summarized once
+                # Default value: true
+                enabled = true
+                # Remind this many minutes before the due date instead of exactly at it
+                # Default value: 0
+                lead_minutes = 0
                 """;
 
             Files.writeString(configPath, defaultConfig);
@@ -121,6 +182,37 @@ public class TodoConfig {
         if (!config.contains("ui.text_alignment")) {
             config.set("ui.text_alignment", TextAlignment.CENTER.getValue());
         }
+
+        // 检查并设置默认的保存延迟
+        if (!config.contains("storage.save_delay_ms")) {
+            config.set("storage.save_delay_ms", DEFAULT_SAVE_DELAY_MS);
+        }
+
+        // 检查并设置默认的存储格式
+        if (!config.contains("storage.format")) {
+            config.set("storage.format", StorageFormat.JSON.getValue());
+        }
+
+        // 检查并设置默认的日志模式选项
+        if (!config.contains("storage.journal_enabled")) {
+            config.set("storage.journal_enabled", false);
+        }
+        if (!config.contains("storage.journal_compact_bytes")) {
+            config.set("storage.journal_compact_bytes", DEFAULT_JOURNAL_COMPACT_BYTES);
+        }
+
+        // 检查并设置默认的归档天数
+        if (!config.contains("storage.archive_after_days")) {
+            config.set("storage.archive_after_days", DEFAULT_ARCHIVE_AFTER_DAYS);
+        }
+
+        // 检查并设置默认的截止提醒选项
+        if (!config.contains("reminders.enabled")) {
+            config.set("reminders.enabled", true);
+        }
+        if (!config.contains("reminders.lead_minutes")) {
+            config.set("reminders.lead_minutes", 0);
+        }
     }
 
     /**
@@ -139,6 +231,56 @@ public class TodoConfig {
         config.save();
     }
 
+    /**
+     * 获取保存延迟（毫秒），在此期间内的多次修改会合并为一次写入
+     */
+    public long getSaveDelayMillis() {
+        return Math.max(0, config.getLongOrElse("storage.save_delay_ms", DEFAULT_SAVE_DELAY_MS));
+    }
+
+    /**
+     * 获取快照文件格式
+     */
+    public StorageFormat getStorageFormat() {
+        String value = config.get("storage.format");
+        return StorageFormat.fromString(value != null ? value : StorageFormat.JSON.getValue());
+    }
+
+    /**
+     * 是否使用只追加的操作日志保存修改
+     */
+    public boolean isJournalEnabled() {
+        return config.getOrElse("storage.journal_enabled", false);
+    }
+
+    /**
+     * 获取日志压缩阈值（字节）
+     */
+    public long getJournalCompactBytes() {
+        return Math.max(1024, config.getLongOrElse("storage.journal_compact_bytes", DEFAULT_JOURNAL_COMPACT_BYTES));
+    }
+
+    /**
+     * 获取归档天数，完成超过该天数的待办事项会移入归档分片，0 表示不归档
+     */
+    public int getArchiveAfterDays() {
+        return Math.max(0, config.getIntOrElse("storage.archive_after_days", DEFAULT_ARCHIVE_AFTER_DAYS));
+    }
+
+    /**
+     * 是否在待办事项到期时提醒
+     */
+    public boolean isRemindersEnabled() {
+        return config.getOrElse("reminders.enabled", true);
+    }
+
+    /**
+     * 获取提前提醒的分钟数，最多提前一周
+     */
+    public int getReminderLeadMinutes() {
+        return Math.min(MAX_REMINDER_LEAD_MINUTES, Math.max(0, config.getIntOrElse("reminders.lead_minutes", 0)));
+    }
+
     /**
      * 重新加载配置文件
      */
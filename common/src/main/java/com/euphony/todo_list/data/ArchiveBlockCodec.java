@@ -0,0 +1,334 @@
+package com.euphony.todo_list.data;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 分块压缩的归档分片格式
+ *
+ * 文件结构（大端序）：
+ *   魔数 "TDLA"、格式版本、块数量
+ *   块索引：每块为首条记录的 UUID（两个long）、数据偏移、压缩后长度、原始长度、记录数量
+ *   数据块：按 UUID 排序的记录，每块是一个 JSON 数组，用 Deflater 压缩
+ * 查找单条记录时只需读取索引并解压它所在的块；
+ * 修改分片时没有变化的块直接复制压缩后的数据，不需要重新解压和压缩
+ */
+final class ArchiveBlockCodec {
+    static final String SHARD_SUFFIX = ".tda";
+
+    private static final int MAGIC = 0x54444C41; // "TDLA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int INDEX_ENTRY_SIZE = 32;
+    private static final int RECORDS_PER_BLOCK = 64;
+
+    private static final Gson GSON = new Gson();
+
+    private ArchiveBlockCodec() {
+    }
+
+    /**
+     * 读取分片中的全部记录
+     */
+    static List<TodoDataManager.TodoData> readAll(Path filePath) throws IOException {
+        List<TodoDataManager.TodoData> records = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (Block block : readIndex(channel, filePath)) {
+                records.addAll(block.records(channel));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 通过块索引查找单条记录，只解压它所在的块；找不到时返回 null
+     */
+    static TodoDataManager.TodoData find(Path filePath, UUID id) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<Block> blocks = readIndex(channel, filePath);
+            int index = findBlock(blocks, id);
+            if (index < 0) return null;
+
+            String target = id.toString();
+            for (TodoDataManager.TodoData data : blocks.get(index).records(channel)) {
+                if (target.equals(data.id)) {
+                    return data;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 在已有分片的基础上删除和写入记录，生成新的分片文件，返回新分片中的记录数量
+     * 只有包含被修改记录的块会被重新压缩，其余块原样复制
+     * existing 为 null 表示没有旧分片
+     */
+    static int rewrite(Path existing, Path target, Map<String, TodoDataManager.TodoData> puts,
+                        Set<String> removals) throws IOException {
+        // 按 UUID 排序，保证每块覆盖一个连续的 ID 区间
+        TreeMap<UUID, TodoDataManager.TodoData> changed = new TreeMap<>();
+        for (TodoDataManager.TodoData data : puts.values()) {
+            changed.put(UUID.fromString(data.id), data);
+        }
+        TreeSet<UUID> removed = new TreeSet<>();
+        for (String id : removals) {
+            removed.add(UUID.fromString(id));
+        }
+
+        List<EncodedBlock> output = new ArrayList<>();
+        FileChannel channel = existing != null ? FileChannel.open(existing, StandardOpenOption.READ) : null;
+        try {
+            List<Block> blocks = channel != null ? readIndex(channel, existing) : List.of();
+            TreeMap<UUID, TodoDataManager.TodoData> pending = new TreeMap<>();
+
+            for (int i = 0; i < blocks.size(); i++) {
+                Block block = blocks.get(i);
+                // 每块负责从自己的首条记录到下一块首条记录之前的区间，第一块还负责更小的 ID
+                UUID from = i == 0 ? null : block.firstId;
+                UUID to = i + 1 < blocks.size() ? blocks.get(i + 1).firstId : null;
+                SortedMap<UUID, TodoDataManager.TodoData> blockPuts = range(changed, from, to);
+                SortedSet<UUID> blockRemovals = range(removed, from, to);
+
+                if (blockPuts.isEmpty() && blockRemovals.isEmpty()) {
+                    // 前面剩下的记录单独成块，避免连带重新压缩后面所有的块
+                    if (!pending.isEmpty()) {
+                        output.add(encode(poll(pending, RECORDS_PER_BLOCK)));
+                    }
+                    output.add(block.copy(channel));
+                    continue;
+                }
+
+                for (TodoDataManager.TodoData data : block.records(channel)) {
+                    pending.put(UUID.fromString(data.id), data);
+                }
+                blockRemovals.forEach(pending::remove);
+                pending.putAll(blockPuts);
+
+                // 攒够一块再输出，剩下的记录与下一个需要改写的块合并
+                while (pending.size() >= RECORDS_PER_BLOCK) {
+                    output.add(encode(poll(pending, RECORDS_PER_BLOCK)));
+                }
+            }
+
+            if (blocks.isEmpty()) {
+                pending.putAll(changed);
+            }
+            while (!pending.isEmpty()) {
+                output.add(encode(poll(pending, RECORDS_PER_BLOCK)));
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+
+        int count = 0;
+        for (EncodedBlock block : output) {
+            count += block.recordCount;
+        }
+        if (count > 0) {
+            write(target, output);
+        }
+        return count;
+    }
+
+    private static void write(Path target, List<EncodedBlock> blocks) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blocks.size());
+
+            long offset = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * blocks.size();
+            for (EncodedBlock block : blocks) {
+                out.writeLong(block.firstId.getMostSignificantBits());
+                out.writeLong(block.firstId.getLeastSignificantBits());
+                out.writeLong(offset);
+                out.writeInt(block.data.length);
+                out.writeInt(block.rawLength);
+                // 与 INDEX_ENTRY_SIZE 对应：16 + 8 + 4 + 4 = 32，记录数量放在数据块前
+                offset += block.data.length + 4;
+            }
+            for (EncodedBlock block : blocks) {
+                out.writeInt(block.recordCount);
+                out.write(block.data);
+            }
+        }
+    }
+
+    private static List<Block> readIndex(FileChannel channel, Path filePath) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a todo archive file: " + filePath);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported todo archive version " + version + ": " + filePath);
+        }
+
+        int blockCount = header.getInt();
+        if (blockCount < 0 || (long) blockCount * INDEX_ENTRY_SIZE > channel.size()) {
+            throw new IOException("Damaged todo archive file: " + filePath);
+        }
+
+        ByteBuffer index = readFully(channel, HEADER_SIZE, blockCount * INDEX_ENTRY_SIZE);
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            Block block = new Block();
+            block.firstId = new UUID(index.getLong(), index.getLong());
+            block.offset = index.getLong();
+            block.compressedLength = index.getInt();
+            block.rawLength = index.getInt();
+            blocks.add(block);
+        }
+        // 记录数量存放在每个数据块前
+        for (Block block : blocks) {
+            block.recordCount = readFully(channel, block.offset, 4).getInt();
+        }
+        return blocks;
+    }
+
+    private static int findBlock(List<Block> blocks, UUID id) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).firstId.compareTo(id) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private static EncodedBlock encode(List<TodoDataManager.TodoData> records) {
+        byte[] raw = GSON.toJson(records).getBytes(StandardCharsets.UTF_8);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+
+            EncodedBlock block = new EncodedBlock();
+            block.firstId = UUID.fromString(records.get(0).id);
+            block.data = out.toByteArray();
+            block.rawLength = raw.length;
+            block.recordCount = records.size();
+            return block;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static List<TodoDataManager.TodoData> poll(TreeMap<UUID, TodoDataManager.TodoData> pending, int count) {
+        List<TodoDataManager.TodoData> records = new ArrayList<>(Math.min(count, pending.size()));
+        while (records.size() < count && !pending.isEmpty()) {
+            records.add(pending.pollFirstEntry().getValue());
+        }
+        return records;
+    }
+
+    private static <V> SortedMap<UUID, V> range(TreeMap<UUID, V> map, UUID from, UUID to) {
+        if (from == null && to == null) return map;
+        if (from == null) return map.headMap(to);
+        if (to == null) return map.tailMap(from);
+        return map.subMap(from, to);
+    }
+
+    private static SortedSet<UUID> range(TreeSet<UUID> set, UUID from, UUID to) {
+        if (from == null && to == null) return set;
+        if (from == null) return set.headSet(to);
+        if (to == null) return set.tailSet(from);
+        return set.subSet(from, to);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of todo archive file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 索引中的一个块
+     */
+    private static final class Block {
+        UUID firstId;
+        long offset;
+        int compressedLength;
+        int rawLength;
+        int recordCount;
+
+        List<TodoDataManager.TodoData> records(FileChannel channel) throws IOException {
+            ByteBuffer compressed = readFully(channel, offset + 4, compressedLength);
+
+            Inflater inflater = new Inflater();
+            byte[] raw = new byte[rawLength];
+            try {
+                inflater.setInput(compressed.array(), 0, compressedLength);
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int read = inflater.inflate(raw, length, rawLength - length);
+                    if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    length += read;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Damaged todo archive block");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Damaged todo archive block", e);
+            } finally {
+                inflater.end();
+            }
+
+            List<TodoDataManager.TodoData> records = new ArrayList<>(recordCount);
+            try (Reader reader = new InputStreamReader(new ByteArrayInputStream(raw), StandardCharsets.UTF_8)) {
+                TodoJsonReader.readTodos(reader, TodoDataManager.TodoData::new, records::add);
+            }
+            return records;
+        }
+
+        EncodedBlock copy(FileChannel channel) throws IOException {
+            EncodedBlock block = new EncodedBlock();
+            block.firstId = firstId;
+            block.data = readFully(channel, offset + 4, compressedLength).array();
+            block.rawLength = rawLength;
+            block.recordCount = recordCount;
+            return block;
+        }
+    }
+
+    /**
+     * 等待写出的块
+     */
+    private static final class EncodedBlock {
+        UUID firstId;
+        byte[] data;
+        int rawLength;
+        int recordCount;
+    }
+}
@@ -0,0 +1,221 @@
+package com.euphony.todo_list.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 紧凑的二进制快照格式，可替代 todos.json 和 tags.json
+ *
+ * 文件结构（大端序）：
+ *   魔数 "TDLS"、格式版本
+ *   标签表：数量，每个标签为 UUID（两个long）、颜色、名称
+ *   待办事项：数量，每项为 UUID、标志位、创建时间、完成时间、截止时间、标题、描述、标签序号列表
+ *   标签序号为 -1 时后面紧跟标签的 UUID，用于不在标签表中的标签（版本 3 起）
+ * 版本 1 没有完成时间，版本 2 不保存未知的标签，读取时仍然兼容
+ * 时间存为 UTC 纪元秒加纳秒，字符串为长度前缀的 UTF-8（-1 表示 null）
+ */
+final class BinarySnapshotCodec {
+    static final String SNAPSHOT_FILE = "todos.bin";
+
+    private static final int MAGIC = 0x54444C53; // "TDLS"
+    private static final int VERSION = 3;
+    private static final int UNKNOWN_TAG = -1;
+
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_HAS_DUE_DATE = 1 << 1;
+    private static final int FLAG_HAS_CREATED_AT = 1 << 2;
+    private static final int FLAG_HAS_COMPLETED_AT = 1 << 3;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private BinarySnapshotCodec() {
+    }
+
+    static void write(Path filePath, Collection<TodoDataManager.TodoData> todos,
+                      Collection<TodoDataManager.TagData> tags) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // 标签表，待办事项通过序号引用标签
+            Map<String, Integer> tagOrdinals = new HashMap<>();
+            out.writeInt(tags.size());
+            for (TodoDataManager.TagData tag : tags) {
+                tagOrdinals.put(tag.id, tagOrdinals.size());
+                writeUuid(out, tag.id);
+                out.writeInt(tag.color);
+                writeString(out, tag.name);
+            }
+
+            out.writeInt(todos.size());
+            for (TodoDataManager.TodoData todo : todos) {
+                writeUuid(out, todo.id);
+
+                int flags = (todo.completed ? FLAG_COMPLETED : 0)
+                        | (todo.dueDate != null ? FLAG_HAS_DUE_DATE : 0)
+                        | (todo.createdAt != null ? FLAG_HAS_CREATED_AT : 0)
+                        | (todo.completedAt != null ? FLAG_HAS_COMPLETED_AT : 0);
+                out.writeByte(flags);
+                if (todo.createdAt != null) {
+                    writeTime(out, todo.createdAt);
+                }
+                if (todo.completedAt != null) {
+                    writeTime(out, todo.completedAt);
+                }
+                if (todo.dueDate != null) {
+                    writeTime(out, todo.dueDate);
+                }
+
+                writeString(out, todo.title);
+                writeString(out, todo.description);
+
+                // 不在标签表中的标签直接写出 UUID，与 todos.json 一样原样保留；不是 UUID 的值加载时也会被忽略，不写出
+                List<String> tagIds = new ArrayList<>(todo.tagIds != null ? todo.tagIds.size() : 0);
+                if (todo.tagIds != null) {
+                    for (String tagId : todo.tagIds) {
+                        if (tagOrdinals.containsKey(tagId) || isUuid(tagId)) {
+                            tagIds.add(tagId);
+                        }
+                    }
+                }
+                out.writeInt(tagIds.size());
+                for (String tagId : tagIds) {
+                    Integer ordinal = tagOrdinals.get(tagId);
+                    if (ordinal != null) {
+                        out.writeInt(ordinal);
+                    } else {
+                        out.writeInt(UNKNOWN_TAG);
+                        writeUuid(out, tagId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次性把整个文件读入缓冲区再解析，避免逐条记录的流式读取开销
+     */
+    static void read(Path filePath, TodoDataManager.StoreData data) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file too large: " + size);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 继续读取直到填满缓冲区
+            }
+            buffer.flip();
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a todo snapshot file: " + filePath);
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported todo snapshot version " + version + ": " + filePath);
+            }
+
+            int tagCount = buffer.getInt();
+            String[] tagIds = new String[tagCount];
+            for (int i = 0; i < tagCount; i++) {
+                TodoDataManager.TagData tag = new TodoDataManager.TagData();
+                tag.id = readUuid(buffer);
+                tag.color = buffer.getInt();
+                tag.name = readString(buffer);
+                tagIds[i] = tag.id;
+                data.tags.put(tag.id, tag);
+            }
+            data.hasTags = true;
+
+            int todoCount = buffer.getInt();
+            for (int i = 0; i < todoCount; i++) {
+                TodoDataManager.TodoData todo = new TodoDataManager.TodoData();
+                todo.id = readUuid(buffer);
+
+                int flags = buffer.get();
+                todo.completed = (flags & FLAG_COMPLETED) != 0;
+                todo.createdAt = (flags & FLAG_HAS_CREATED_AT) != 0 ? readTime(buffer) : null;
+                todo.completedAt = (flags & FLAG_HAS_COMPLETED_AT) != 0 ? readTime(buffer) : null;
+                todo.dueDate = (flags & FLAG_HAS_DUE_DATE) != 0 ? readTime(buffer) : null;
+
+                todo.title = readString(buffer);
+                todo.description = readString(buffer);
+
+                int count = buffer.getInt();
+                todo.tagIds = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    int ordinal = buffer.getInt();
+                    todo.tagIds.add(ordinal == UNKNOWN_TAG ? readUuid(buffer) : tagIds[ordinal]);
+                }
+                data.todos.put(todo.id, todo);
+            }
+        } catch (RuntimeException e) {
+            // 截断或损坏的文件会在这里表现为越界
+            throw new IOException("Damaged todo snapshot file: " + filePath, e);
+        }
+    }
+
+    private static boolean isUuid(String id) {
+        try {
+            UUID.fromString(id);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, String id) throws IOException {
+        UUID uuid = UUID.fromString(id);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static String readUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+
+    private static void writeTime(DataOutputStream out, String text) throws IOException {
+        LocalDateTime time = LocalDateTime.parse(text, FORMATTER);
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static String readTime(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC).format(FORMATTER);
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+
+        String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+}
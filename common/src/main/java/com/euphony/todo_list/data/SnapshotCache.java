@@ -0,0 +1,135 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.config.TodoConfig;
+import com.euphony.todo_list.todo.TodoItem;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 记录上一次保存时每个条目的版本号和所在位置（活跃分区或归档分片）
+ * 保存时据此只写出发生变化的文件和记录，完全没有变化时不做任何写入
+ * 每个条目只保存版本号和分片，不保留序列化的记录，需要写出时再从条目生成
+ * 只在客户端线程访问；写入失败时由保存线程标记失效，下一次保存写出全部数据
+ */
+final class SnapshotCache {
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private TodoConfig.StorageFormat format;
+    private long tagsVersion = -1;
+    private long listVersion = -1;
+    private int activeCount = -1;
+    private volatile boolean invalid = true;
+    // 最近一次加载时磁盘上的格式，加载过程需要重放日志等无法与内存直接对应时为 null
+    private TodoConfig.StorageFormat loadedFormat;
+
+    /**
+     * 标记缓存失效，下一次保存写出全部文件
+     */
+    void invalidate() {
+        invalid = true;
+    }
+
+    void setLoadedFormat(TodoConfig.StorageFormat loadedFormat) {
+        this.loadedFormat = loadedFormat;
+    }
+
+    /**
+     * 加载完成后调用，磁盘上的数据与内存一致时，此后只需写出修改过的部分
+     */
+    void reset(List<TodoItem> items, long listVersion, long tagsVersion) {
+        TodoConfig.StorageFormat format = loadedFormat;
+        loadedFormat = null;
+        entries.clear();
+        if (format == null) {
+            invalidate();
+            return;
+        }
+
+        for (TodoItem item : items) {
+            markClean(item, null);
+        }
+        this.format = format;
+        this.listVersion = listVersion;
+        this.tagsVersion = tagsVersion;
+        this.activeCount = items.size();
+        this.invalid = false;
+    }
+
+    /**
+     * 记录一个条目当前的状态已经在磁盘上，shard 为 null 表示在活跃分区
+     */
+    void markClean(TodoItem item, String shard) {
+        entries.put(item.getId(), new Entry(item.getVersion(), shard));
+    }
+
+    /**
+     * 开始一次保存，返回本次是否需要写出全部数据
+     */
+    boolean beginCapture(TodoConfig.StorageFormat format) {
+        boolean full = invalid || format != this.format;
+        if (full) {
+            entries.clear();
+            invalid = false;
+            this.format = format;
+            activeCount = -1;
+            tagsVersion = -1;
+        }
+        return full;
+    }
+
+    /**
+     * 条目自上次保存后是否被修改或移动到了其他位置
+     */
+    boolean isChanged(TodoItem item, String shard) {
+        Entry entry = entries.get(item.getId());
+        return entry == null || entry.version != item.getVersion() || !Objects.equals(entry.shard, shard);
+    }
+
+    /**
+     * 记录本次保存后的状态
+     */
+    void update(TodoItem item, String shard) {
+        entries.put(item.getId(), new Entry(item.getVersion(), shard));
+    }
+
+    /**
+     * 删除已不在清单中的条目，只在清单结构变化后调用
+     */
+    void retainAll(Set<UUID> ids) {
+        entries.keySet().retainAll(ids);
+    }
+
+    boolean isListChanged(long listVersion) {
+        return this.listVersion != listVersion;
+    }
+
+    boolean isTagsChanged(long tagsVersion) {
+        return this.tagsVersion != tagsVersion;
+    }
+
+    boolean isActiveCountChanged(int activeCount) {
+        return this.activeCount != activeCount;
+    }
+
+    void finishCapture(long listVersion, long tagsVersion, int activeCount) {
+        this.listVersion = listVersion;
+        this.tagsVersion = tagsVersion;
+        this.activeCount = activeCount;
+    }
+
+    static Set<UUID> idsOf(List<TodoItem> items) {
+        Set<UUID> ids = new HashSet<>(items.size() * 2);
+        for (TodoItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private record Entry(int version, String shard) {
+    }
+}
@@ -0,0 +1,425 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.config.TodoConfig;
+import com.euphony.todo_list.todo.TodoItem;
+import com.euphony.todo_list.todo.TodoListManager;
+import net.minecraft.client.Minecraft;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static com.euphony.todo_list.TodoList.LOGGER;
+
+/**
+ * 已完成待办事项的归档分区
+ * 完成超过一定天数的待办事项在保存时移出 todos.json，按完成月份写入 archive/yyyy-MM.tda
+ * 分片使用 {@link ArchiveBlockCodec} 分块压缩，旧版本的 archive/yyyy-MM.json 仍可读取，下次写入该分片时转换
+ * 加入世界时只加载活跃分区，归档分片在搜索或筛选需要时才异步加载，内存紧张时再卸载
+ * 删除和取消完成会在 TodoListManager 的写锁内记录离开归档的条目，保存线程取出它们，
+ * 因此归档状态只在本对象的监视器内修改；持有监视器时不调用 TodoListManager 或保存调度器
+ */
+public class TodoArchive {
+    static final String ARCHIVE_FOLDER = "archive";
+    private static final String LEGACY_SHARD_SUFFIX = ".json";
+    private static final int EVICTION_CHECK_INTERVAL = 600; // 每30秒检查一次
+
+    // 已加载到内存的归档条目：ID -> 所属分片
+    private final Map<String, String> residentItems = new HashMap<>();
+    // 每个已加载分片的软引用哨兵，被GC清除说明内存紧张，可以卸载该分片
+    private final Map<String, SoftReference<Object>> residentShards = new HashMap<>();
+    // 需要从分片中删除的条目：分片 -> ID
+    private final Map<String, Set<String>> pendingRemovals = new HashMap<>();
+
+    private volatile boolean loaded = false;
+    private volatile boolean loading = false;
+    private volatile int session = 0;
+    private volatile int generation = 0; // 只在客户端线程上递增
+    private int ticks = 0;
+
+    private TodoArchive() {
+    }
+
+    private static final class Holder {
+        static final TodoArchive INSTANCE = new TodoArchive();
+    }
+
+    public static TodoArchive getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 切换世界时调用，丢弃上一个世界的归档状态和尚未完成的异步加载结果
+     */
+    public synchronized void reset() {
+        residentItems.clear();
+        residentShards.clear();
+        pendingRemovals.clear();
+        loaded = false;
+        loading = false;
+        session++;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * 每次归档分片加载完成后递增，界面据此判断是否需要刷新
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 请求加载所有归档分片，已加载或正在加载时直接返回
+     * 文件读取在保存线程上进行，避免与正在写入的分片冲突
+     */
+    public void requestLoad() {
+        if (loaded) {
+            // 访问哨兵，让最近使用的分片更晚被回收
+            synchronized (this) {
+                residentShards.values().forEach(SoftReference::get);
+            }
+            return;
+        }
+        // 待办清单本身还在加载或已经断开连接时不加载归档
+        if (loading || TodoListManager.getInstance().isLoading() || !WorldStorageContext.isOpen()) return;
+
+        loading = true;
+        int requestSession = session;
+        Path directory = TodoDataManager.getTodoDirectory();
+
+        TodoSaveScheduler.getInstance().submitRead(() -> readAllShards(directory))
+                .thenAcceptAsync(shards -> {
+                    if (requestSession != session) return; // 已经切换到其他世界
+                    merge(shards);
+                }, Minecraft.getInstance())
+                .exceptionally(e -> {
+                    LOGGER.error("Failed to load archived todos", e);
+                    Minecraft.getInstance().execute(() -> {
+                        if (requestSession == session) loading = false;
+                    });
+                    return null;
+                });
+    }
+
+    /**
+     * 在归档中查找单个待办事项，只读取各分片的块索引并解压包含它的块
+     * 不会把条目加入待办清单，找不到时结果为 null
+     */
+    public CompletableFuture<TodoItem> lookup(UUID id) {
+        Path directory = TodoDataManager.getTodoDirectory();
+        return TodoSaveScheduler.getInstance().submitRead(() -> {
+            TodoDataManager.TodoData data = findArchived(directory, id);
+            return data != null ? data.toTodoItem() : null;
+        });
+    }
+
+    private void merge(Map<String, List<TodoDataManager.TodoData>> shards) {
+        int count = 0;
+        for (Map.Entry<String, List<TodoDataManager.TodoData>> entry : shards.entrySet()) {
+            List<TodoItem> items = new ArrayList<>(entry.getValue().size());
+            for (TodoDataManager.TodoData data : entry.getValue()) {
+                items.add(data.toTodoItem());
+            }
+            synchronized (this) {
+                for (TodoDataManager.TodoData data : entry.getValue()) {
+                    residentItems.put(data.id, entry.getKey());
+                }
+                residentShards.put(entry.getKey(), new SoftReference<>(new Object()));
+            }
+            for (TodoItem item : TodoListManager.getInstance().mergeArchivedItems(items)) {
+                TodoDataManager.markArchived(item, entry.getKey());
+                count++;
+            }
+        }
+
+        loaded = true;
+        loading = false;
+        generation++;
+        LOGGER.info("Loaded " + count + " archived todos from " + shards.size() + " shards");
+    }
+
+    /**
+     * 每个客户端tick调用，内存紧张时卸载未修改的归档分片
+     */
+    public void tick() {
+        if (!loaded || ++ticks < EVICTION_CHECK_INTERVAL) return;
+        ticks = 0;
+
+        // 有未保存的修改时不卸载，避免丢失对归档条目的修改
+        if (TodoSaveScheduler.getInstance().isDirty()) return;
+
+        List<String> residentIds = new ArrayList<>();
+        synchronized (this) {
+            List<String> evicted = new ArrayList<>();
+            for (Map.Entry<String, SoftReference<Object>> entry : residentShards.entrySet()) {
+                if (entry.getValue().get() == null) {
+                    evicted.add(entry.getKey());
+                }
+            }
+            if (evicted.isEmpty()) return;
+
+            Iterator<Map.Entry<String, String>> iterator = residentItems.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, String> entry = iterator.next();
+                if (!evicted.contains(entry.getValue())) continue;
+                iterator.remove();
+                residentIds.add(entry.getKey());
+            }
+            evicted.forEach(residentShards::remove);
+        }
+
+        LocalDateTime cutoff = getCutoff();
+        List<UUID> ids = new ArrayList<>();
+        for (String id : residentIds) {
+            // 期间被取消完成的条目已经回到活跃分区，不能卸载
+            TodoItem item = TodoListManager.getInstance().getTodoItem(UUID.fromString(id));
+            if (item != null && cutoff != null && archiveShard(item, format(cutoff)) != null) {
+                ids.add(item.getId());
+            }
+        }
+
+        TodoListManager.getInstance().evictItems(ids);
+        loaded = false;
+        generation++;
+        LOGGER.info("Evicted " + ids.size() + " archived todos under memory pressure");
+    }
+
+    /**
+     * 在删除待办事项或取消完成之前调用
+     * 如果该条目可能已经在归档分片中，记录需要从分片中删除，并要求下一次保存写出完整快照
+     */
+    public void noteLeavingArchive(TodoItem item) {
+        String id = item.getId().toString();
+        LocalDateTime cutoff = getCutoff();
+        TodoDataManager.TodoData data = new TodoDataManager.TodoData(item);
+
+        String shard;
+        synchronized (this) {
+            shard = residentItems.remove(id);
+            if (shard == null && cutoff != null && isArchivable(data, format(cutoff))) {
+                shard = shardKey(data);
+            }
+            if (shard != null) {
+                pendingRemovals.computeIfAbsent(shard, key -> new HashSet<>()).add(id);
+            }
+        }
+
+        if (shard != null) {
+            TodoSaveScheduler.getInstance().requestFullSave();
+        }
+    }
+
+    /**
+     * 取出待删除的归档条目，在捕获保存快照时调用
+     */
+    synchronized Map<String, Set<String>> drainPendingRemovals() {
+        Map<String, Set<String>> removals = new HashMap<>(pendingRemovals);
+        pendingRemovals.clear();
+        return removals;
+    }
+
+    /**
+     * 当前的归档截止时间，完成时间早于它的条目会被归档；未启用归档时返回null
+     */
+    static LocalDateTime getCutoff() {
+        int days = TodoConfig.getInstance().getArchiveAfterDays();
+        return days > 0 ? LocalDateTime.now().minusDays(days) : null;
+    }
+
+    static String format(LocalDateTime time) {
+        return time.format(TodoDataManager.DATE_FORMATTER);
+    }
+
+    /**
+     * ISO 格式的时间字符串可以直接按字典序比较，不需要逐条解析
+     * 旧数据没有完成时间时按创建时间计算
+     */
+    static boolean isArchivable(TodoDataManager.TodoData data, String cutoff) {
+        if (!data.completed) return false;
+        String time = data.completedAt != null ? data.completedAt : data.createdAt;
+        return time != null && time.compareTo(cutoff) < 0;
+    }
+
+    /**
+     * 内存中的条目应写入的归档分片，不需要归档时返回 null
+     * 与按记录判断的结果相同，只为已完成的条目格式化时间，不创建整条记录
+     */
+    static String archiveShard(TodoItem item, String cutoff) {
+        if (cutoff == null || !item.isCompleted()) return null;
+        LocalDateTime completedAt = item.getCompletedAt();
+        String time = format(completedAt != null ? completedAt : item.getCreatedAt());
+        if (time.compareTo(cutoff) >= 0) return null;
+        return time.length() >= 7 ? time.substring(0, 7) : "unknown";
+    }
+
+    /**
+     * 分片按完成月份划分，例如 2025-07
+     */
+    static String shardKey(TodoDataManager.TodoData data) {
+        String time = data.completedAt != null ? data.completedAt : data.createdAt;
+        return time != null && time.length() >= 7 ? time.substring(0, 7) : "unknown";
+    }
+
+    /**
+     * 将记录分为活跃部分和按月份分组的归档部分
+     */
+    static Map<String, List<TodoDataManager.TodoData>> partition(Collection<TodoDataManager.TodoData> records,
+                                                                 LocalDateTime cutoff,
+                                                                 List<TodoDataManager.TodoData> active) {
+        Map<String, List<TodoDataManager.TodoData>> archived = new TreeMap<>();
+        String cutoffText = cutoff != null ? format(cutoff) : null;
+        for (TodoDataManager.TodoData data : records) {
+            if (cutoffText != null && isArchivable(data, cutoffText)) {
+                archived.computeIfAbsent(shardKey(data), key -> new ArrayList<>()).add(data);
+            } else {
+                active.add(data);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * 将归档条目合并进分片文件，并删除已经离开归档的条目
+     * 只重新压缩包含变化条目的块；旧的 JSON 分片在这里转换为压缩格式
+     * 只能在保存线程上调用
+     */
+    static boolean writeShards(Path directory, Map<String, List<TodoDataManager.TodoData>> archived,
+                               Map<String, Set<String>> removals) {
+        Set<String> shards = new TreeSet<>(archived.keySet());
+        shards.addAll(removals.keySet());
+        if (shards.isEmpty()) return true;
+
+        Path archiveDir = directory.resolve(ARCHIVE_FOLDER);
+        try {
+            Files.createDirectories(archiveDir);
+        } catch (IOException e) {
+            LOGGER.error("Failed to create archive directory: " + e.getMessage());
+            return false;
+        }
+
+        boolean success = true;
+        for (String shard : shards) {
+            Path shardPath = archiveDir.resolve(shard + ArchiveBlockCodec.SHARD_SUFFIX);
+            Path legacyPath = archiveDir.resolve(shard + LEGACY_SHARD_SUFFIX);
+
+            Map<String, TodoDataManager.TodoData> puts = new HashMap<>();
+            Path existing = Files.exists(shardPath) ? shardPath : null;
+            if (existing == null && Files.exists(legacyPath)) {
+                for (TodoDataManager.TodoData data : readLegacyShard(legacyPath)) {
+                    puts.put(data.id, data);
+                }
+            }
+            Set<String> removed = removals.getOrDefault(shard, Set.of());
+            puts.keySet().removeAll(removed);
+            for (TodoDataManager.TodoData data : archived.getOrDefault(shard, List.of())) {
+                puts.put(data.id, data);
+            }
+
+            try {
+                Path tempPath = shardPath.resolveSibling(shardPath.getFileName() + ".tmp");
+                if (ArchiveBlockCodec.rewrite(existing, tempPath, puts, removed) > 0) {
+                    TodoDataManager.moveIntoPlace(tempPath, shardPath);
+                } else {
+                    Files.deleteIfExists(shardPath);
+                }
+                Files.deleteIfExists(legacyPath);
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.error("Failed to save archive shard " + shardPath + ": " + e.getMessage());
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    private static Map<String, List<TodoDataManager.TodoData>> readAllShards(Path directory) {
+        Map<String, List<TodoDataManager.TodoData>> shards = new TreeMap<>();
+        for (Map.Entry<String, Path> entry : listShards(directory).entrySet()) {
+            shards.put(entry.getKey(), readShard(entry.getValue()));
+        }
+        return shards;
+    }
+
+    private static TodoDataManager.TodoData findArchived(Path directory, UUID id) {
+        for (Path shardPath : listShards(directory).values()) {
+            try {
+                TodoDataManager.TodoData data;
+                if (shardPath.toString().endsWith(LEGACY_SHARD_SUFFIX)) {
+                    String target = id.toString();
+                    data = readLegacyShard(shardPath).stream()
+                            .filter(record -> target.equals(record.id))
+                            .findFirst()
+                            .orElse(null);
+                } else {
+                    data = ArchiveBlockCodec.find(shardPath, id);
+                }
+                if (data != null) return data;
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.error("Failed to search archive shard " + shardPath + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 列出所有分片：分片名称 -> 文件，同名时压缩格式优先于旧的 JSON 分片
+     */
+    private static Map<String, Path> listShards(Path directory) {
+        Map<String, Path> shards = new TreeMap<>();
+        Path archiveDir = directory.resolve(ARCHIVE_FOLDER);
+        if (!Files.isDirectory(archiveDir)) return shards;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(archiveDir,
+                "*{" + ArchiveBlockCodec.SHARD_SUFFIX + "," + LEGACY_SHARD_SUFFIX + "}")) {
+            for (Path shardPath : stream) {
+                String fileName = shardPath.getFileName().toString();
+                boolean legacy = fileName.endsWith(LEGACY_SHARD_SUFFIX);
+                String shard = fileName.substring(0, fileName.lastIndexOf('.'));
+                if (legacy) {
+                    shards.putIfAbsent(shard, shardPath);
+                } else {
+                    shards.put(shard, shardPath);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to list archive shards: " + e.getMessage());
+        }
+        return shards;
+    }
+
+    private static List<TodoDataManager.TodoData> readShard(Path shardPath) {
+        if (shardPath.getFileName().toString().endsWith(LEGACY_SHARD_SUFFIX)) {
+            return readLegacyShard(shardPath);
+        }
+
+        try {
+            return ArchiveBlockCodec.readAll(shardPath);
+        } catch (Exception e) {
+            LOGGER.error("Failed to load archive shard " + shardPath + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<TodoDataManager.TodoData> readLegacyShard(Path shardPath) {
+        List<TodoDataManager.TodoData> records = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(shardPath, StandardCharsets.UTF_8)) {
+            TodoJsonReader.readTodos(reader, TodoDataManager.TodoData::new, records::add);
+        } catch (Exception e) {
+            LOGGER.error("Failed to load archive shard " + shardPath + ": " + e.getMessage());
+        }
+        return records;
+    }
+}
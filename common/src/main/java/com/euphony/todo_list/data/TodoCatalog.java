@@ -0,0 +1,271 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.todo.Tag;
+import com.euphony.todo_list.todo.TodoItem;
+import com.euphony.todo_list.utils.Utils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static com.euphony.todo_list.TodoList.LOGGER;
+
+/**
+ * 所有世界的待办事项目录，保存在 todolist/catalog.json
+ * 每次保存某个世界时更新该世界的摘要（数量、标签名称和每个待办事项的标题），
+ * 跨世界搜索只需查询这个索引，不需要逐个解析每个世界的完整文件
+ * 目录数据只在保存线程上访问
+ */
+public final class TodoCatalog {
+    private static final String CATALOG_FILE = "catalog.json";
+    private static final int CATALOG_VERSION = 1;
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    // 已读入内存的目录，只在保存线程上访问
+    private static CatalogData cached;
+    private static Path cachedPath;
+
+    private TodoCatalog() {
+    }
+
+    /**
+     * 在客户端线程上生成世界摘要，只包含活跃分区中的待办事项
+     */
+    static WorldSummary summarize(String world, List<TodoItem> items) {
+        WorldSummary summary = newSummary(world, items.size());
+        Set<String> tagNames = new TreeSet<>();
+        for (TodoItem item : items) {
+            List<Tag> tags = item.getTags();
+            List<String> names = null;
+            if (!tags.isEmpty()) {
+                names = new ArrayList<>(tags.size());
+                for (Tag tag : tags) {
+                    names.add(tag.getName());
+                }
+            }
+            addTodo(summary, tagNames, item.getTitle(), item.isCompleted(), names);
+        }
+        summary.tags = new ArrayList<>(tagNames);
+        return summary;
+    }
+
+    /**
+     * 在保存线程上根据磁盘上的记录生成世界摘要，用于日志合并后更新目录
+     */
+    static WorldSummary summarize(String world, Collection<TodoDataManager.TodoData> todos,
+                                  Map<String, TodoDataManager.TagData> tags) {
+        WorldSummary summary = newSummary(world, todos.size());
+        Set<String> tagNames = new TreeSet<>();
+        for (TodoDataManager.TodoData data : todos) {
+            List<String> names = null;
+            if (data.tagIds != null && !data.tagIds.isEmpty()) {
+                names = new ArrayList<>(data.tagIds.size());
+                for (String tagId : data.tagIds) {
+                    TodoDataManager.TagData tag = tags.get(tagId);
+                    if (tag != null) names.add(tag.name);
+                }
+            }
+            addTodo(summary, tagNames, data.title, data.completed, names);
+        }
+        summary.tags = new ArrayList<>(tagNames);
+        return summary;
+    }
+
+    private static WorldSummary newSummary(String world, int size) {
+        WorldSummary summary = new WorldSummary();
+        summary.world = world;
+        summary.updated = LocalDateTime.now().format(TodoDataManager.DATE_FORMATTER);
+        summary.todos = new ArrayList<>(size);
+        return summary;
+    }
+
+    private static void addTodo(WorldSummary summary, Set<String> tagNames, String title, boolean completed,
+                                List<String> tags) {
+        TodoSummary todo = new TodoSummary();
+        todo.title = title;
+        todo.completed = completed;
+        if (tags != null && !tags.isEmpty()) {
+            todo.tags = tags;
+            tagNames.addAll(tags);
+        }
+
+        if (completed) {
+            summary.completed++;
+        } else {
+            summary.open++;
+        }
+        summary.todos.add(todo);
+    }
+
+    /**
+     * 用新的摘要替换目录中该世界的条目并写回文件
+     * 只能在保存线程上调用
+     */
+    static void update(Path todoRoot, WorldSummary summary) {
+        Path catalogPath = todoRoot.resolve(CATALOG_FILE);
+        CatalogData data = load(catalogPath);
+        data.worlds.put(summary.world, summary);
+
+        Path tempPath = catalogPath.resolveSibling(CATALOG_FILE + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                GSON.toJson(data, writer);
+            }
+            TodoDataManager.moveIntoPlace(tempPath, catalogPath);
+        } catch (IOException e) {
+            LOGGER.error("Failed to save todo catalog: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取所有世界的摘要，按最近更新时间排序
+     */
+    public static CompletableFuture<List<WorldSummary>> getWorlds() {
+        Path catalogPath = getCatalogPath();
+        return TodoSaveScheduler.getInstance().submitRead(() -> {
+            List<WorldSummary> worlds = new ArrayList<>(load(catalogPath).worlds.values());
+            worlds.sort(Comparator.comparing((WorldSummary world) -> world.updated,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            return worlds;
+        });
+    }
+
+    /**
+     * 在所有世界中搜索标题或标签名称包含关键字的待办事项
+     */
+    public static CompletableFuture<List<SearchResult>> search(String query) {
+        Path catalogPath = getCatalogPath();
+        String search = Utils.fold(query).trim();
+        return TodoSaveScheduler.getInstance().submitRead(() -> {
+            List<SearchResult> results = new ArrayList<>();
+            if (search.isEmpty()) return results;
+
+            for (WorldSummary world : load(catalogPath).worlds.values()) {
+                if (world.todos == null) continue;
+                for (TodoSummary todo : world.todos) {
+                    if (matches(todo, search)) {
+                        results.add(new SearchResult(world.world, todo));
+                    }
+                }
+            }
+            return results;
+        });
+    }
+
+    private static boolean matches(TodoSummary todo, String search) {
+        if (todo.title != null && Utils.fold(todo.title).contains(search)) {
+            return true;
+        }
+        if (todo.tags != null) {
+            for (String tag : todo.tags) {
+                if (Utils.fold(tag).contains(search)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static Path getCatalogPath() {
+        return TodoDataManager.getTodoRoot().resolve(CATALOG_FILE);
+    }
+
+    private static CatalogData load(Path catalogPath) {
+        if (cached != null && catalogPath.equals(cachedPath)) {
+            return cached;
+        }
+
+        CatalogData data = null;
+        if (Files.exists(catalogPath)) {
+            try (Reader reader = Files.newBufferedReader(catalogPath, StandardCharsets.UTF_8)) {
+                data = GSON.fromJson(reader, CatalogData.class);
+            } catch (IOException | JsonParseException e) {
+                LOGGER.error("Failed to load todo catalog, rebuilding it: " + e.getMessage());
+            }
+        }
+        if (data == null || data.version != CATALOG_VERSION || data.worlds == null) {
+            data = new CatalogData();
+        }
+
+        cached = data;
+        cachedPath = catalogPath;
+        return data;
+    }
+
+    private static final class CatalogData {
+        int version = CATALOG_VERSION;
+        Map<String, WorldSummary> worlds = new TreeMap<>();
+    }
+
+    /**
+     * 一个世界的摘要
+     */
+    public static final class WorldSummary {
+        String world;
+        String updated;
+        int open;
+        int completed;
+        List<String> tags;
+        List<TodoSummary> todos;
+
+        public String getWorld() {
+            return world;
+        }
+
+        public int getOpenCount() {
+            return open;
+        }
+
+        public int getCompletedCount() {
+            return completed;
+        }
+
+        public List<String> getTags() {
+            return tags != null ? tags : List.of();
+        }
+    }
+
+    /**
+     * 目录中记录的单个待办事项
+     */
+    static final class TodoSummary {
+        String title;
+        boolean completed;
+        List<String> tags;
+    }
+
+    /**
+     * 跨世界搜索的一条结果
+     */
+    public static final class SearchResult {
+        private final String world;
+        private final String title;
+        private final boolean completed;
+
+        private SearchResult(String world, TodoSummary todo) {
+            this.world = world;
+            this.title = todo.title;
+            this.completed = todo.completed;
+        }
+
+        public String getWorld() {
+            return world;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -1,25 +1,31 @@
 package com.euphony.todo_list.data;
 
+import com.euphony.todo_list.config.TodoConfig;
 import com.euphony.todo_list.todo.Tag;
 import com.euphony.todo_list.todo.TagManager;
 import com.euphony.todo_list.todo.TodoItem;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.server.IntegratedServer;
 import net.minecraft.world.level.storage.LevelResource;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
-import static com.mojang.text2speech.Narrator.LOGGER;
+import static com.euphony.todo_list.TodoList.LOGGER;
 
 /**
  * 待办清单数据持久化管理器
@@ -33,39 +39,34 @@ public class TodoDataManager {
             .setPrettyPrinting()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .create();
+    static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     /**
-     * 获取当前世界的待办清单存储路径
+     * 获取当前世界的待办清单存储路径，由存储上下文在加入世界时解析一次
      */
-    private static Path getTodoDirectory() {
-        Minecraft minecraft = Minecraft.getInstance();
-        Path gameDir = minecraft.gameDirectory.toPath();
+    static Path getTodoDirectory() {
+        return WorldStorageContext.current().getDirectory();
+    }
 
+    /**
+     * 所有世界共用的根目录：gameDir/todolist/
+     */
+    static Path getTodoRoot() {
+        return Minecraft.getInstance().gameDirectory.toPath().resolve(TODO_FOLDER);
+    }
+
+    /**
+     * 根据当前世界解析待办清单存储路径，只在打开存储上下文时调用
+     */
+    static Path resolveTodoDirectory() {
         // 获取当前世界名称
         String worldName = getCurrentWorldName();
         if (worldName == null) {
             worldName = "global"; // 如果不在世界中，使用全局存储
         }
 
-        // 创建路径：gameDir/todolist/worldName/
-        Path todoDir = gameDir.resolve(TODO_FOLDER).resolve(worldName);
-
-        // 确保目录存在
-        try {
-            Files.createDirectories(todoDir);
-        } catch (IOException e) {
-            System.err.println("Failed to create todo directory: " + e.getMessage());
-        }
-
-        return todoDir;
-    }
-
-    private static Path getTodoFilePath() {
-        return getTodoDirectory().resolve(TODO_FILE);
-    }
-
-    private static Path getTagsFilePath() {
-        return getTodoDirectory().resolve(TAGS_FILE);
+        // 路径：gameDir/todolist/worldName/
+        return getTodoRoot().resolve(worldName);
     }
 
     /**
@@ -97,219 +98,640 @@ public class TodoDataManager {
      * 保存待办清单和标签到文件
      */
     public static boolean saveTodos(List<TodoItem> todos) {
-        boolean todosSuccess = saveTodosToFile(todos);
-        boolean tagsSuccess = saveTagsToFile();
-        return todosSuccess && tagsSuccess;
+        return writeSnapshot(captureSnapshot(todos, -1));
     }
 
-    private static boolean saveTodosToFile(List<TodoItem> todos) {
-        Path filePath = getTodoFilePath();
+    /**
+     * 在客户端线程上捕获待保存的数据快照
+     * 只复制数据，不做序列化和文件读写，可以安全地交给后台线程写入
+     * 与上一次保存相比没有变化的文件和记录不会出现在快照中
+     */
+    public static SaveSnapshot captureSnapshot(List<TodoItem> todos, long listVersion) {
+        WorldStorageContext context = WorldStorageContext.current();
+        SnapshotCache cache = context.getSnapshotCache();
+        TodoConfig.StorageFormat format = TodoConfig.getInstance().getStorageFormat();
+        boolean full = cache.beginCapture(format);
+
+        // 完成时间早于截止时间的条目写入归档分片，不再留在 todos.json 中
+        LocalDateTime cutoff = TodoArchive.getCutoff();
+        String cutoffText = cutoff != null ? TodoArchive.format(cutoff) : null;
+
+        List<TodoItem> activeItems = new ArrayList<>(todos.size());
+        Map<String, List<TodoData>> archived = new TreeMap<>();
+        boolean todosChanged = full;
+        for (TodoItem item : todos) {
+            String shard = TodoArchive.archiveShard(item, cutoffText);
+            boolean changed = full || cache.isChanged(item, shard);
+
+            if (shard == null) {
+                activeItems.add(item);
+                todosChanged |= changed;
+            } else if (changed) {
+                archived.computeIfAbsent(shard, key -> new ArrayList<>()).add(new TodoData(item));
+            }
+            if (changed) {
+                cache.update(item, shard);
+            }
+        }
+        // 有条目被删除或移入归档时活跃分区的数量会变化
+        todosChanged |= cache.isActiveCountChanged(activeItems.size());
 
-        try {
-            // 创建待办事项的序列化数据
-            List<TodoData> todoDataList = new ArrayList<>();
-            for (TodoItem item : todos) {
+        long tagsVersion = TagManager.getInstance().getVersion();
+        boolean tagsChanged = full || cache.isTagsChanged(tagsVersion);
+
+        if (cache.isListChanged(listVersion)) {
+            cache.retainAll(SnapshotCache.idsOf(todos));
+        }
+        cache.finishCapture(listVersion, tagsVersion, activeItems.size());
+
+        // 二进制格式把待办事项和标签写在同一个文件中，任一变化都要一起写出
+        if (format == TodoConfig.StorageFormat.BINARY) {
+            todosChanged |= tagsChanged;
+            tagsChanged = todosChanged;
+        }
+
+        // 活跃分区或标签变化时更新跨世界目录中该世界的摘要
+        TodoCatalog.WorldSummary summary = todosChanged || tagsChanged ?
+                TodoCatalog.summarize(context.getDirectory().getFileName().toString(), activeItems) : null;
+
+        List<TagData> tagDataList = null;
+        if (tagsChanged) {
+            Map<UUID, Tag> tagsMap = TagManager.getInstance().getTagsMap();
+            tagDataList = new ArrayList<>(tagsMap.size());
+            for (Tag tag : tagsMap.values()) {
+                tagDataList.add(new TagData(tag));
+            }
+        }
+
+        // 活跃分区需要重写时才生成记录，写出后即丢弃
+        List<TodoData> todoDataList = null;
+        if (todosChanged) {
+            todoDataList = new ArrayList<>(activeItems.size());
+            for (TodoItem item : activeItems) {
                 todoDataList.add(new TodoData(item));
             }
+        }
+
+        return new SaveSnapshot(context.getDirectory(), format, cache, full,
+                todoDataList, tagDataList,
+                archived, TodoArchive.getInstance().drainPendingRemovals(), summary);
+    }
+
+    /**
+     * 在客户端线程上生成该世界的目录摘要，只包含不会被归档的条目，与 captureSnapshot 中的摘要相同
+     */
+    static TodoCatalog.WorldSummary summarize(Path directory, List<TodoItem> todos, LocalDateTime cutoff) {
+        String cutoffText = cutoff != null ? TodoArchive.format(cutoff) : null;
+        List<TodoItem> activeItems = new ArrayList<>(todos.size());
+        for (TodoItem item : todos) {
+            if (TodoArchive.archiveShard(item, cutoffText) == null) {
+                activeItems.add(item);
+            }
+        }
+        return TodoCatalog.summarize(directory.getFileName().toString(), activeItems);
+    }
+
+    /**
+     * 将快照写入文件，可以在任意线程调用
+     * 快照已包含日志中的所有修改，写入成功后删除日志
+     */
+    public static boolean writeSnapshot(SaveSnapshot snapshot) {
+        if (snapshot.isEmpty()) return true;
+
+        // 先写归档分片再写活跃分区，中途失败时条目最多同时出现在两处，不会丢失
+        List<TodoData> todos = snapshot.todos;
+        if (!TodoArchive.writeShards(snapshot.directory, snapshot.archived, snapshot.removals)) {
+            snapshot.cache.invalidate();
+            if (!snapshot.full) return false;
+
+            // 完整快照中无法写入归档的条目留在活跃分区
+            todos = new ArrayList<>(snapshot.todos);
+            snapshot.archived.values().forEach(todos::addAll);
+        }
+
+        boolean success = writeStore(snapshot.directory, snapshot.format, todos, snapshot.tags);
+        if (success) {
+            TodoJournal.delete(snapshot.directory);
+            if (snapshot.summary != null) {
+                TodoCatalog.update(snapshot.directory.getParent(), snapshot.summary);
+            }
+        } else {
+            snapshot.cache.invalidate();
+        }
+        return success;
+    }
 
-            // 写入文件
-            try (FileWriter writer = new FileWriter(filePath.toFile())) {
-                GSON.toJson(todoDataList, writer);
+    /**
+     * 在加载完成后调用，记录磁盘上的数据状态，之后的保存只写出修改过的部分
+     */
+    public static void markLoaded(List<TodoItem> todos, long listVersion) {
+        WorldStorageContext.current().getSnapshotCache().reset(todos, listVersion, TagManager.getInstance().getVersion());
+    }
+
+    /**
+     * 记录从归档分片加载的条目已经在磁盘上
+     */
+    static void markArchived(TodoItem item, String shard) {
+        WorldStorageContext.current().getSnapshotCache().markClean(item, shard);
+    }
+
+    /**
+     * 以指定格式写出快照，成功后删除另一种格式的旧快照，保证只有一份有效数据
+     * JSON 格式下 todos 或 tags 为 null 表示该文件没有变化，不需要写出
+     */
+    static boolean writeStore(Path directory, TodoConfig.StorageFormat format,
+                              Collection<TodoData> todos, Collection<TagData> tags) {
+        if (format == TodoConfig.StorageFormat.BINARY) {
+            if (!writeBinary(directory.resolve(BinarySnapshotCodec.SNAPSHOT_FILE), todos, tags)) {
+                return false;
             }
+            deleteQuietly(directory.resolve(TODO_FILE));
+            deleteQuietly(directory.resolve(TAGS_FILE));
+            return true;
+        }
+
+        boolean todosSuccess = todos == null || writeTodosJson(directory.resolve(TODO_FILE), todos);
+        boolean tagsSuccess = tags == null || writeJson(directory.resolve(TAGS_FILE), tags, "tags");
+        if (todosSuccess && tagsSuccess) {
+            deleteQuietly(directory.resolve(BinarySnapshotCodec.SNAPSHOT_FILE));
+        }
+        return todosSuccess && tagsSuccess;
+    }
+
+    private static boolean writeBinary(Path filePath, Collection<TodoData> todos, Collection<TagData> tags) {
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+
+        try {
+            BinarySnapshotCodec.write(tempPath, todos, tags);
+            moveIntoPlace(tempPath, filePath);
 
             LOGGER.info("Successfully saved " + todos.size() + " todos to: " + filePath);
             return true;
 
         } catch (IOException e) {
-            System.err.println("Failed to save todos: " + e.getMessage());
+            LOGGER.error("Failed to save todos to: " + filePath, e);
             return false;
         }
     }
 
-    private static boolean saveTagsToFile() {
-        Path filePath = getTagsFilePath();
+    private static boolean writeJson(Path filePath, Collection<?> data, String kind) {
+        // 先写入临时文件再替换，避免后台写入中途退出时损坏原文件
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
 
         try {
-            Map<UUID, Tag> tagsMap = TagManager.getInstance().getTagsMap();
-            List<TagData> tagDataList = new ArrayList<>();
-
-            for (Tag tag : tagsMap.values()) {
-                tagDataList.add(new TagData(tag));
+            try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                GSON.toJson(data, writer);
             }
+            moveIntoPlace(tempPath, filePath);
+
+            LOGGER.info("Successfully saved " + data.size() + " " + kind + " to: " + filePath);
+            return true;
 
-            try (FileWriter writer = new FileWriter(filePath.toFile())) {
-                GSON.toJson(tagDataList, writer);
+        } catch (IOException e) {
+            LOGGER.error("Failed to save " + kind + " to: " + filePath, e);
+            return false;
+        }
+    }
+
+    /**
+     * 写出 todos.json，输出与直接序列化整个列表相同
+     */
+    private static boolean writeTodosJson(Path filePath, Collection<TodoData> todos) {
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                if (todos.isEmpty()) {
+                    writer.write("[]");
+                } else {
+                    writer.write("[\n");
+                    boolean first = true;
+                    for (TodoData data : todos) {
+                        if (!first) {
+                            writer.write(",\n");
+                        }
+                        first = false;
+                        // 作为数组元素时每行多缩进两格
+                        writer.write("  " + GSON.toJson(data).replace("\n", "\n  "));
+                    }
+                    writer.write("\n]");
+                }
             }
+            moveIntoPlace(tempPath, filePath);
 
-            LOGGER.info("Successfully saved " + tagDataList.size() + " tags to: " + filePath);
+            LOGGER.info("Successfully saved " + todos.size() + " todos to: " + filePath);
             return true;
 
         } catch (IOException e) {
-            System.err.println("Failed to save tags: " + e.getMessage());
+            LOGGER.error("Failed to save todos to: " + filePath, e);
             return false;
         }
     }
 
+    static void moveIntoPlace(Path tempPath, Path filePath) throws IOException {
+        try {
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteQuietly(Path filePath) {
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            LOGGER.error("Failed to delete old snapshot file: " + filePath, e);
+        }
+    }
+
+    /**
+     * 在保存线程上加载当前世界的待办清单，不阻塞加入世界
+     * 读取排在之前所有写入之后进行；结果需要在客户端线程上通过 install 启用
+     */
+    public static CompletableFuture<LoadResult> loadTodosAsync() {
+        Path directory = resolveTodoDirectory();
+        return TodoSaveScheduler.getInstance().submitRead(() -> {
+            WorldStorageContext context = WorldStorageContext.prepare(directory);
+            try {
+                LoadResult result = readTodos(directory);
+                result.context = context;
+                return result;
+            } catch (IOException e) {
+                // 不能以空列表继续，否则之后的保存会覆盖损坏的文件；由调用方标记加载失败并重试
+                context.release();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                context.release();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * 在客户端线程上启用异步加载的结果：切换存储上下文并安装标签，返回加载的待办事项
+     */
+    public static List<TodoItem> install(LoadResult result) {
+        WorldStorageContext.install(result.context);
+        return install(result.context, result);
+    }
+
+    /**
+     * 丢弃已经过期的加载结果，例如加载期间又切换了世界
+     */
+    public static void discard(LoadResult result) {
+        if (result.context != null) {
+            result.context.release();
+        }
+    }
+
+    private static List<TodoItem> install(WorldStorageContext context, LoadResult result) {
+        if (result.tags != null) {
+            TagManager.getInstance().setTagsFromMap(result.tags);
+        }
+        context.getSnapshotCache().setLoadedFormat(result.format);
+        return result.todos;
+    }
+
     /**
-     * 从文件加载待办清单和标签
+     * 读取标签和待办事项，不修改任何全局状态，可以在后台线程调用
+     * JSON 文件无法读取或解析时抛出 IOException
      */
-    public static List<TodoItem> loadTodos() {
+    static LoadResult readTodos(Path directory) throws IOException {
+        LoadResult result = new LoadResult();
+        boolean hasJournal = TodoJournal.exists(directory);
+
+        // 常见情况：JSON快照且没有待重放的日志，直接流式创建待办事项
+        if (!hasJournal && !hasNewerBinarySnapshot(directory)) {
+            // 两个文件都存在时磁盘数据与加载结果一致，之后只需写出修改过的部分
+            boolean complete = Files.exists(directory.resolve(TODO_FILE)) && Files.exists(directory.resolve(TAGS_FILE));
+            result.format = complete ? TodoConfig.StorageFormat.JSON : null;
+            streamJsonStore(directory, result);
+            return result;
+        }
+
+        // 需要重放日志时磁盘上的快照落后于内存，下一次保存写出全部数据
+        result.format = hasJournal ? null : TodoConfig.StorageFormat.BINARY;
+        StoreData data = readStore(directory);
+
         // 首先加载标签
-        loadTagsFromFile();
+        if (data.hasTags) {
+            result.tags = new HashMap<>();
+            for (TagData tagData : data.tags.values()) {
+                Tag tag = tagData.toTag();
+                result.tags.put(tag.getId(), tag);
+            }
+        }
+
+        // 然后转换待办事项
+        Function<UUID, Tag> tagLookup = result.tagLookup();
+        result.todos = new ArrayList<>(data.todos.size());
+        for (TodoData todoData : data.todos.values()) {
+            result.todos.add(todoData.toTodoItem(tagLookup));
+        }
+        return result;
+    }
+
+    /**
+     * 流式读取 tags.json 和 todos.json，读到一条就创建一个对象
+     * 文件存在但无法读取或解析时抛出 IOException，不会当作空文件继续
+     */
+    private static void streamJsonStore(Path directory, LoadResult result) throws IOException {
+        // 首先加载标签，待办事项需要通过ID引用它们
+        Path tagsPath = directory.resolve(TAGS_FILE);
+        if (!Files.exists(tagsPath)) {
+            LOGGER.info("Tags file not found, starting with empty tags: " + tagsPath);
+        } else {
+            try (Reader reader = Files.newBufferedReader(tagsPath, StandardCharsets.UTF_8)) {
+                Map<UUID, Tag> tagsMap = new HashMap<>();
+                TodoJsonReader.readTags(reader, tagData -> {
+                    Tag tag = tagData.toTag();
+                    tagsMap.put(tag.getId(), tag);
+                });
+                result.tags = tagsMap;
+                LOGGER.info("Successfully loaded " + tagsMap.size() + " tags from: " + tagsPath);
+            } catch (RuntimeException e) {
+                throw new IOException("Damaged tags file: " + tagsPath, e);
+            }
+        }
+
+        Path todosPath = directory.resolve(TODO_FILE);
+        if (!Files.exists(todosPath)) {
+            LOGGER.info("Todo file not found, starting with empty list: " + todosPath);
+            return;
+        }
+
+        List<TodoItem> todos = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(todosPath, StandardCharsets.UTF_8)) {
+            // 转换后不再需要记录对象，所有条目共用同一个
+            TodoData record = new TodoData();
+            Function<UUID, Tag> tagLookup = result.tagLookup();
+            TodoJsonReader.readTodos(reader, () -> record, data -> todos.add(data.toTodoItem(tagLookup)));
+            LOGGER.info("Successfully loaded " + todos.size() + " todos from: " + todosPath);
+            result.todos = todos;
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged todo file: " + todosPath, e);
+        }
+    }
+
+    /**
+     * 读取快照文件并重放日志，得到最新的数据
+     * 不修改任何全局状态，可以在后台线程调用
+     */
+    static StoreData readStore(Path directory) {
+        StoreData data = new StoreData();
+
+        Path binaryPath = directory.resolve(BinarySnapshotCodec.SNAPSHOT_FILE);
+        if (hasNewerBinarySnapshot(directory)) {
+            try {
+                BinarySnapshotCodec.read(binaryPath, data);
+                LOGGER.info("Successfully loaded " + data.todos.size() + " todos from: " + binaryPath);
+            } catch (IOException e) {
+                LOGGER.error("Failed to load todos from: " + binaryPath, e);
+                data = new StoreData();
+            }
+            TodoJournal.replay(directory, data);
+            return data;
+        }
 
-        // 然后加载待办事项
-        return loadTodosFromFile();
+        List<TagData> tagDataList = readTagsFile(directory.resolve(TAGS_FILE));
+        if (tagDataList != null) {
+            data.hasTags = true;
+            for (TagData tagData : tagDataList) {
+                data.tags.put(tagData.id, tagData);
+            }
+        }
+
+        for (TodoData todoData : readTodosFile(directory.resolve(TODO_FILE))) {
+            data.todos.put(todoData.id, todoData);
+        }
+
+        TodoJournal.replay(directory, data);
+        return data;
     }
 
-    private static List<TodoItem> loadTodosFromFile() {
-        Path filePath = getTodoFilePath();
+    /**
+     * 两种格式同时存在时（例如切换格式后保存失败），以较新的文件为准
+     */
+    private static boolean hasNewerBinarySnapshot(Path directory) {
+        Path binaryPath = directory.resolve(BinarySnapshotCodec.SNAPSHOT_FILE);
+        Path jsonPath = directory.resolve(TODO_FILE);
+        if (!Files.exists(binaryPath)) return false;
+
+        try {
+            return !Files.exists(jsonPath)
+                    || Files.getLastModifiedTime(binaryPath).compareTo(Files.getLastModifiedTime(jsonPath)) >= 0;
+        } catch (IOException e) {
+            return true;
+        }
+    }
 
+    private static List<TodoData> readTodosFile(Path filePath) {
         if (!Files.exists(filePath)) {
             LOGGER.info("Todo file not found, starting with empty list: " + filePath);
             return new ArrayList<>();
         }
 
         try {
-            try (FileReader reader = new FileReader(filePath.toFile())) {
-                Type listType = new TypeToken<List<TodoData>>(){}.getType();
-                List<TodoData> todoDataList = GSON.fromJson(reader, listType);
-
-                if (todoDataList == null) {
-                    return new ArrayList<>();
-                }
-
-                // 转换为 TodoItem 对象
-                List<TodoItem> todos = new ArrayList<>();
-                for (TodoData data : todoDataList) {
-                    todos.add(data.toTodoItem());
-                }
+            try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+                List<TodoData> todoDataList = new ArrayList<>();
+                TodoJsonReader.readTodos(reader, TodoData::new, todoDataList::add);
 
-                LOGGER.info("Successfully loaded " + todos.size() + " todos from: " + filePath);
-                return todos;
+                LOGGER.info("Successfully loaded " + todoDataList.size() + " todos from: " + filePath);
+                return todoDataList;
             }
 
         } catch (Exception e) {
-            System.err.println("Failed to load todos: " + e.getMessage());
+            LOGGER.error("Failed to load todos from: " + filePath, e);
             return new ArrayList<>();
         }
     }
 
-    private static void loadTagsFromFile() {
-        Path filePath = getTagsFilePath();
-
+    private static List<TagData> readTagsFile(Path filePath) {
         if (!Files.exists(filePath)) {
             LOGGER.info("Tags file not found, starting with empty tags: " + filePath);
-            return;
+            return null;
         }
 
         try {
-            try (FileReader reader = new FileReader(filePath.toFile())) {
-                Type listType = new TypeToken<List<TagData>>(){}.getType();
-                List<TagData> tagDataList = GSON.fromJson(reader, listType);
-
-                if (tagDataList == null) {
-                    return;
-                }
-
-                // 转换为 Tag 对象并添加到 TagManager
-                Map<UUID, Tag> tagsMap = new HashMap<>();
-                for (TagData data : tagDataList) {
-                    Tag tag = data.toTag();
-                    tagsMap.put(tag.getId(), tag);
-                }
+            try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+                List<TagData> tagDataList = new ArrayList<>();
+                TodoJsonReader.readTags(reader, tagDataList::add);
 
-                TagManager.getInstance().setTagsFromMap(tagsMap);
                 LOGGER.info("Successfully loaded " + tagDataList.size() + " tags from: " + filePath);
+                return tagDataList;
             }
 
         } catch (Exception e) {
-            System.err.println("Failed to load tags: " + e.getMessage());
+            LOGGER.error("Failed to load tags from: " + filePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * 快照加上日志重放后的数据，按ID索引并保持原有顺序
+     */
+    static final class StoreData {
+        final Map<String, TodoData> todos = new LinkedHashMap<>();
+        final Map<String, TagData> tags = new LinkedHashMap<>();
+        boolean hasTags = false;
+    }
+
+    /**
+     * 一次加载得到的数据，在后台线程读取，在客户端线程上启用
+     */
+    public static final class LoadResult {
+        private WorldStorageContext context;
+        private Map<UUID, Tag> tags;                      // 为 null 时没有标签文件
+        private List<TodoItem> todos = new ArrayList<>();
+        private TodoConfig.StorageFormat format;           // 磁盘数据与加载结果一致时为其格式，否则为 null
+
+        private LoadResult() {
+        }
+
+        List<TodoItem> getTodos() {
+            return todos;
+        }
+
+        // 待办事项引用本次加载的标签，而不是标签管理器中上一个世界的标签
+        private Function<UUID, Tag> tagLookup() {
+            Map<UUID, Tag> loadedTags = tags != null ? tags : Map.of();
+            return loadedTags::get;
+        }
+    }
+
+    /**
+     * 一次保存所需的全部数据，捕获后不再引用可变的待办事项对象
+     */
+    public static final class SaveSnapshot {
+        private final Path directory;
+        private final TodoConfig.StorageFormat format;
+        private final SnapshotCache cache;
+        private final boolean full;
+        private final List<TodoData> todos; // 为 null 时活跃分区没有变化
+        private final List<TagData> tags;   // 为 null 时标签没有变化
+        private final Map<String, List<TodoData>> archived;
+        private final Map<String, Set<String>> removals;
+        private final TodoCatalog.WorldSummary summary; // 为 null 时目录不需要更新
+
+        private SaveSnapshot(Path directory, TodoConfig.StorageFormat format, SnapshotCache cache, boolean full,
+                             List<TodoData> todos, List<TagData> tags,
+                             Map<String, List<TodoData>> archived, Map<String, Set<String>> removals,
+                             TodoCatalog.WorldSummary summary) {
+            this.directory = directory;
+            this.format = format;
+            this.cache = cache;
+            this.full = full;
+            this.todos = todos;
+            this.tags = tags;
+            this.archived = archived;
+            this.removals = removals;
+            this.summary = summary;
+        }
+
+        /**
+         * 与上一次保存相比没有任何变化
+         */
+        public boolean isEmpty() {
+            return todos == null && tags == null && archived.isEmpty() && removals.isEmpty();
+        }
+
+        /**
+         * 写入成功后会更新跨世界目录中该世界的摘要
+         */
+        public boolean hasSummary() {
+            return summary != null;
+        }
+
+        public int size() {
+            int size = todos != null ? todos.size() : 0;
+            for (List<TodoData> shard : archived.values()) {
+                size += shard.size();
+            }
+            return size;
         }
     }
 
     /**
      * 用于JSON序列化的待办事项数据类
      */
-    private static class TodoData {
-        private String id;
-        private String title;
-        private String description;
-        private boolean completed;
-        private String createdAt;
-        private String dueDate;
-        private List<String> tagIds; // 标签ID列表
+    static class TodoData {
+        String id;
+        String title;
+        String description;
+        boolean completed;
+        String createdAt;
+        String completedAt;
+        String dueDate;
+        List<String> tagIds; // 标签ID列表
+
+        TodoData() {
+        }
 
         public TodoData(TodoItem item) {
             this.id = item.getId().toString();
             this.title = item.getTitle();
             this.description = item.getDescription();
             this.completed = item.isCompleted();
-            this.createdAt = item.getCreatedAt().format(java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            this.createdAt = item.getCreatedAt().format(DATE_FORMATTER);
+            this.completedAt = item.getCompletedAt() != null ?
+                item.getCompletedAt().format(DATE_FORMATTER) : null;
             this.dueDate = item.getDueDate() != null ?
-                item.getDueDate().format(java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME) : null;
+                item.getDueDate().format(DATE_FORMATTER) : null;
 
             // 保存标签ID
-            this.tagIds = new ArrayList<>();
-            for (Tag tag : item.getTags()) {
-                this.tagIds.add(tag.getId().toString());
+            List<Tag> tags = item.getTags();
+            this.tagIds = new ArrayList<>(tags.size());
+            for (int i = 0; i < tags.size(); i++) {
+                this.tagIds.add(tags.get(i).getId().toString());
             }
         }
 
         public TodoItem toTodoItem() {
-            TodoItem item = new TodoItem(title, description);
-            // 使用反射设置私有字段
+            return toTodoItem(TagManager.getInstance()::getTag);
+        }
+
+        TodoItem toTodoItem(Function<UUID, Tag> tagLookup) {
             try {
-                var idField = TodoItem.class.getDeclaredField("id");
-                idField.setAccessible(true);
-                idField.set(item, java.util.UUID.fromString(id));
-
-                var completedField = TodoItem.class.getDeclaredField("completed");
-                completedField.setAccessible(true);
-                completedField.set(item, completed);
-
-                var createdAtField = TodoItem.class.getDeclaredField("createdAt");
-                createdAtField.setAccessible(true);
-                createdAtField.set(item, LocalDateTime.parse(createdAt, java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-
-                if (dueDate != null) {
-                    var dueDateField = TodoItem.class.getDeclaredField("dueDate");
-                    dueDateField.setAccessible(true);
-                    dueDateField.set(item, LocalDateTime.parse(dueDate, java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                }
+                LocalDateTime created = createdAt != null ? LocalDateTime.parse(createdAt, DATE_FORMATTER) : LocalDateTime.now();
+                LocalDateTime completedTime = completedAt != null ? LocalDateTime.parse(completedAt, DATE_FORMATTER) : null;
+                LocalDateTime due = dueDate != null ? LocalDateTime.parse(dueDate, DATE_FORMATTER) : null;
+                return new TodoItem(UUID.fromString(id), title, description, completed, created, completedTime, due, resolveTags(tagLookup));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to restore fields of todo item " + id + ": " + e.getMessage());
+                return new TodoItem(title, description);
+            }
+        }
 
-                // 恢复标签
-                if (tagIds != null) {
-                    List<Tag> tags = new ArrayList<>();
-                    TagManager tagManager = TagManager.getInstance();
-                    for (String tagIdStr : tagIds) {
-                        try {
-                            UUID tagId = UUID.fromString(tagIdStr);
-                            Tag tag = tagManager.getTag(tagId);
-                            if (tag != null) {
-                                tags.add(tag);
-                            }
-                        } catch (IllegalArgumentException e) {
-                            System.err.println("Invalid tag ID: " + tagIdStr);
-                        }
+        // 恢复标签，忽略已不存在的标签
+        private List<Tag> resolveTags(Function<UUID, Tag> tagLookup) {
+            List<Tag> tags = new ArrayList<>(tagIds != null ? tagIds.size() : 0);
+            if (tagIds == null) return tags;
+
+            for (String tagIdStr : tagIds) {
+                try {
+                    UUID tagId = UUID.fromString(tagIdStr);
+                    Tag tag = tagLookup.apply(tagId);
+                    if (tag != null) {
+                        tags.add(tag);
                     }
-                    item.setTags(tags);
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Invalid tag ID: " + tagIdStr);
                 }
-
-            } catch (Exception e) {
-                System.err.println("Failed to restore todo item fields: " + e.getMessage());
             }
-
-            return item;
+            return tags;
         }
     }
 
     /**
      * 用于JSON序列化的标签数据类
      */
-    private static class TagData {
-        private String id;
-        private String name;
-        private int color;
+    static class TagData {
+        String id;
+        String name;
+        int color;
+
+        TagData() {
+        }
 
         public TagData(Tag tag) {
             this.id = tag.getId().toString();
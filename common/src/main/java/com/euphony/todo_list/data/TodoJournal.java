@@ -0,0 +1,184 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.config.TodoConfig;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.euphony.todo_list.TodoList.LOGGER;
+
+/**
+ * 只追加的操作日志，保存在 todos.json 旁边
+ * 每次修改只追加一行记录，加载时在快照之上重放，超过阈值后由后台线程压缩回快照
+ */
+final class TodoJournal {
+    static final String JOURNAL_FILE = "todos.journal";
+
+    // 日志每行一条记录，不使用格式化输出
+    private static final Gson GSON = new Gson();
+
+    private TodoJournal() {
+    }
+
+    /**
+     * 追加一批修改，超过阈值时压缩为新的快照
+     * 只能在保存线程上调用
+     */
+    static boolean append(Path directory, List<TodoOperation> operations, long compactThreshold,
+                          TodoConfig.StorageFormat format, LocalDateTime archiveCutoff) {
+        Path journalPath = directory.resolve(JOURNAL_FILE);
+
+        try {
+            boolean terminated = endsWithNewline(journalPath);
+            try (Writer writer = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+                // 上次写入被中断时最后一行没有换行，新记录不能接在它后面
+                if (!terminated) {
+                    writer.write('\n');
+                }
+                for (TodoOperation operation : operations) {
+                    writer.write(GSON.toJson(operation));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to append todo journal: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            if (Files.size(journalPath) >= compactThreshold) {
+                return compact(directory, format, archiveCutoff);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to check todo journal size: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 将日志合并进快照文件，然后删除日志
+     * 只读取磁盘上的文件，不访问内存中的待办清单；可以归档的条目同时移入归档分片
+     */
+    static boolean compact(Path directory, TodoConfig.StorageFormat format, LocalDateTime archiveCutoff) {
+        TodoDataManager.StoreData data = TodoDataManager.readStore(directory);
+
+        List<TodoDataManager.TodoData> active = new ArrayList<>(data.todos.size());
+        Map<String, List<TodoDataManager.TodoData>> archived = TodoArchive.partition(data.todos.values(), archiveCutoff, active);
+        if (!TodoArchive.writeShards(directory, archived, Map.of())) {
+            active = new ArrayList<>(data.todos.values());
+        }
+
+        if (!TodoDataManager.writeStore(directory, format, active, data.tags.values())) {
+            return false;
+        }
+
+        delete(directory);
+        // 日志模式下平时的追加不更新跨世界目录，合并时按写入的活跃分区更新
+        TodoCatalog.update(directory.getParent(),
+                TodoCatalog.summarize(directory.getFileName().toString(), active, data.tags));
+        LOGGER.info("Compacted todo journal into snapshot: " + directory);
+        return true;
+    }
+
+    /**
+     * 在快照数据之上按顺序重放日志
+     * 写入时被中断的记录（通常是没有换行的最后一行）会被跳过，并把日志改写为只包含完整的记录，
+     * 之后追加的记录不会接在损坏的行后面；只能在保存线程上调用
+     */
+    static void replay(Path directory, TodoDataManager.StoreData data) {
+        Path journalPath = directory.resolve(JOURNAL_FILE);
+        if (!Files.exists(journalPath)) return;
+
+        int count = 0;
+        List<String> records = new ArrayList<>();
+        boolean damaged = false;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                TodoOperation operation;
+                try {
+                    operation = GSON.fromJson(line, TodoOperation.class);
+                } catch (JsonParseException e) {
+                    LOGGER.warn("Skipped a damaged todo journal record: " + e.getMessage());
+                    damaged = true;
+                    continue;
+                }
+
+                if (operation != null) {
+                    operation.apply(data);
+                    records.add(line);
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to read todo journal: " + e.getMessage());
+            return;
+        }
+
+        LOGGER.info("Replayed " + count + " journal records from: " + journalPath);
+        if (damaged) {
+            rewrite(journalPath, records);
+        }
+    }
+
+    /**
+     * 用完整的记录替换日志，先写临时文件再替换
+     */
+    private static void rewrite(Path journalPath, List<String> records) {
+        Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                for (String record : records) {
+                    writer.write(record);
+                    writer.write('\n');
+                }
+            }
+            TodoDataManager.moveIntoPlace(tempPath, journalPath);
+            LOGGER.info("Removed damaged records from todo journal: " + journalPath);
+        } catch (IOException e) {
+            LOGGER.error("Failed to repair todo journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 日志为空、不存在或以换行结尾
+     */
+    private static boolean endsWithNewline(Path journalPath) throws IOException {
+        if (!Files.exists(journalPath)) return true;
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return true;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    static boolean exists(Path directory) {
+        return Files.exists(directory.resolve(JOURNAL_FILE));
+    }
+
+    static void delete(Path directory) {
+        try {
+            Files.deleteIfExists(directory.resolve(JOURNAL_FILE));
+        } catch (IOException e) {
+            LOGGER.error("Failed to delete todo journal: " + e.getMessage());
+        }
+    }
+}
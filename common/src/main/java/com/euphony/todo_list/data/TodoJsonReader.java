@@ -0,0 +1,124 @@
+package com.euphony.todo_list.data;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 基于 JsonReader 的流式读取器，不使用反射
+ * 每读完一条记录就交给调用方，不会先构建整个列表
+ */
+final class TodoJsonReader {
+    private TodoJsonReader() {
+    }
+
+    /**
+     * 流式读取 tags.json
+     */
+    static void readTags(Reader in, Consumer<TodoDataManager.TagData> sink) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            TodoDataManager.TagData tag = new TodoDataManager.TagData();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> tag.id = nextStringOrNull(reader);
+                    case "name" -> tag.name = nextStringOrNull(reader);
+                    case "color" -> tag.color = reader.nextInt();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            sink.accept(tag);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * 流式读取 todos.json
+     * records 决定每条记录使用的对象：需要保留记录时每次返回新对象，直接转换时可以重复使用同一个对象
+     */
+    static void readTodos(Reader in, Supplier<TodoDataManager.TodoData> records,
+                          Consumer<TodoDataManager.TodoData> sink) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            TodoDataManager.TodoData todo = records.get();
+            reset(todo);
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> todo.id = nextStringOrNull(reader);
+                    case "title" -> todo.title = nextStringOrNull(reader);
+                    case "description" -> todo.description = nextStringOrNull(reader);
+                    case "completed" -> todo.completed = reader.nextBoolean();
+                    case "createdAt" -> todo.createdAt = nextStringOrNull(reader);
+                    case "completedAt" -> todo.completedAt = nextStringOrNull(reader);
+                    case "dueDate" -> todo.dueDate = nextStringOrNull(reader);
+                    case "tagIds" -> readTagIds(reader, todo);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            sink.accept(todo);
+        }
+        reader.endArray();
+    }
+
+    private static void readTagIds(JsonReader reader, TodoDataManager.TodoData todo) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+
+        if (todo.tagIds == null) {
+            todo.tagIds = new ArrayList<>();
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String tagId = nextStringOrNull(reader);
+            if (tagId != null) {
+                todo.tagIds.add(tagId);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static void reset(TodoDataManager.TodoData todo) {
+        todo.id = null;
+        todo.title = null;
+        todo.description = null;
+        todo.completed = false;
+        todo.createdAt = null;
+        todo.completedAt = null;
+        todo.dueDate = null;
+        if (todo.tagIds != null) {
+            todo.tagIds.clear();
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
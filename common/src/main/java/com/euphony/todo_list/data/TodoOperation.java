@@ -0,0 +1,89 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.todo.Tag;
+import com.euphony.todo_list.todo.TodoItem;
+
+import java.util.UUID;
+
+/**
+ * 对待办清单的一次修改，作为一条记录追加到日志中
+ * 在客户端线程创建时就复制好所需数据，之后可以安全地交给后台线程
+ */
+public final class TodoOperation {
+    enum Type {
+        PUT_TODO,      // 新增或整体更新一个待办事项
+        REMOVE_TODO,   // 删除待办事项
+        SET_COMPLETED, // 修改完成状态
+        PUT_TAG,       // 新增或更新标签
+        REMOVE_TAG     // 删除标签
+    }
+
+    private final Type type;
+    private final String id;
+    private final Boolean completed;
+    private final String completedAt;
+    private final TodoDataManager.TodoData todo;
+    private final TodoDataManager.TagData tag;
+
+    private TodoOperation(Type type, String id, Boolean completed, String completedAt,
+                          TodoDataManager.TodoData todo, TodoDataManager.TagData tag) {
+        this.type = type;
+        this.id = id;
+        this.completed = completed;
+        this.completedAt = completedAt;
+        this.todo = todo;
+        this.tag = tag;
+    }
+
+    public static TodoOperation putTodo(TodoItem item) {
+        return new TodoOperation(Type.PUT_TODO, null, null, null, new TodoDataManager.TodoData(item), null);
+    }
+
+    public static TodoOperation removeTodo(UUID id) {
+        return new TodoOperation(Type.REMOVE_TODO, id.toString(), null, null, null, null);
+    }
+
+    public static TodoOperation setCompleted(TodoItem item) {
+        String completedAt = item.getCompletedAt() != null ? item.getCompletedAt().format(TodoDataManager.DATE_FORMATTER) : null;
+        return new TodoOperation(Type.SET_COMPLETED, item.getId().toString(), item.isCompleted(), completedAt, null, null);
+    }
+
+    public static TodoOperation putTag(Tag tag) {
+        return new TodoOperation(Type.PUT_TAG, null, null, null, null, new TodoDataManager.TagData(tag));
+    }
+
+    public static TodoOperation removeTag(UUID id) {
+        return new TodoOperation(Type.REMOVE_TAG, id.toString(), null, null, null, null);
+    }
+
+    /**
+     * 将修改应用到读取出的数据上，重放日志和压缩时使用
+     * 每条记录都写入绝对值，重复应用同一段日志得到的结果不变
+     */
+    void apply(TodoDataManager.StoreData data) {
+        if (type == null) return;
+
+        switch (type) {
+            case PUT_TODO -> {
+                if (todo != null && todo.id != null) {
+                    data.todos.put(todo.id, todo);
+                }
+            }
+            case REMOVE_TODO -> data.todos.remove(id);
+            case SET_COMPLETED -> {
+                TodoDataManager.TodoData existing = data.todos.get(id);
+                if (existing != null && completed != null) {
+                    existing.completed = completed;
+                    existing.completedAt = completedAt;
+                }
+            }
+            case PUT_TAG -> {
+                if (tag != null && tag.id != null) {
+                    data.tags.put(tag.id, tag);
+                    data.hasTags = true;
+                }
+            }
+            case REMOVE_TAG -> data.tags.remove(id);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.config.TodoConfig;
+import com.euphony.todo_list.todo.TodoListManager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.euphony.todo_list.TodoList.LOGGER;
+
+/**
+ * 待办清单的延迟写入（write-behind）保存器
+ * 修改时只标记为脏，静默期结束后在客户端线程捕获快照，再交给后台线程序列化并写入文件
+ * 开启日志模式时只追加这段时间内的修改记录，不再重写整个文件
+ * 修改可能来自任何线程，记录修改的方法是同步的；提交保存仍在客户端线程进行
+ */
+public class TodoSaveScheduler {
+
+    // 单线程执行器保证多次写入按提交顺序落盘
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TodoList-Saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<TodoOperation> pendingOperations = new ArrayList<>();
+    private volatile boolean dirty = false;
+    private boolean fullSaveRequested = false;
+    private volatile long lastChangeNanos;
+    // 日志追加后跨世界目录中该世界的摘要已过期，日志合并、完整保存或 flush 时才更新；只在客户端线程上访问
+    private boolean catalogStale = false;
+
+    private TodoSaveScheduler() {
+    }
+
+    private static final class Holder {
+        static final TodoSaveScheduler INSTANCE = new TodoSaveScheduler();
+    }
+
+    public static TodoSaveScheduler getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 记录一次修改，静默期结束后才会真正保存
+     */
+    public synchronized void record(TodoOperation operation) {
+        pendingOperations.add(operation);
+        markDirty();
+    }
+
+    /**
+     * 一次记录多个修改，批量操作只标记一次，之后与其他修改一起写入
+     */
+    public synchronized void recordAll(Collection<TodoOperation> operations) {
+        if (operations.isEmpty()) return;
+        pendingOperations.addAll(operations);
+        markDirty();
+    }
+
+    /**
+     * 标记数据已修改，静默期结束后才会真正保存
+     */
+    public synchronized void markDirty() {
+        dirty = true;
+        lastChangeNanos = System.nanoTime();
+    }
+
+    /**
+     * 要求下一次保存写出完整快照，而不是只追加日志
+     */
+    public synchronized void requestFullSave() {
+        fullSaveRequested = true;
+        markDirty();
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 每个客户端tick调用一次，静默期结束后提交保存
+     */
+    public void tick() {
+        // 加载期间不保存，修改在加载完成后才会应用
+        if (!dirty || TodoListManager.getInstance().isLoading()) return;
+
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(TodoConfig.getInstance().getSaveDelayMillis());
+        if (System.nanoTime() - lastChangeNanos >= delayNanos) {
+            submitSave();
+        }
+    }
+
+    /**
+     * 立即提交所有未写入的修改，不等待写入完成
+     */
+    public void submitPending() {
+        if (dirty && !TodoListManager.getInstance().isLoading()) {
+            submitSave();
+        }
+    }
+
+    /**
+     * 丢弃所有未写入的修改
+     */
+    public void discardPending() {
+        clearPending();
+    }
+
+    /**
+     * 立即保存所有未写入的修改并等待写入完成，用于断开连接和退出游戏
+     * 不设超时：调用方随后会关闭存储上下文或退出进程，写入没有完成就返回会丢失修改
+     */
+    public void flush() {
+        submitPending();
+        submitCatalogUpdate();
+
+        // 提交一个空任务，等待之前排队的写入全部完成
+        Future<?> drained = writer.submit(() -> {});
+        boolean interrupted = false;
+        while (true) {
+            try {
+                drained.get();
+                break;
+            } catch (InterruptedException e) {
+                // 被中断也继续等待，之后恢复中断状态
+                interrupted = true;
+            } catch (ExecutionException e) {
+                LOGGER.error("Failed to wait for pending todo saves", e);
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 在保存线程上执行一次读取，与排队中的写入按顺序进行，不会读到写了一半的文件
+     */
+    public <T> CompletableFuture<T> submitRead(Supplier<T> reader) {
+        return CompletableFuture.supplyAsync(reader, writer);
+    }
+
+    private void submitSave() {
+        // 存储上下文已经关闭（例如断开连接之后），这些修改不属于任何世界，不能写入下一个打开的世界
+        if (!WorldStorageContext.isOpen()) {
+            LOGGER.warn("Discarding todo changes made while no world storage is open");
+            clearPending();
+            return;
+        }
+
+        TodoConfig config = TodoConfig.getInstance();
+        boolean fullSave;
+        List<TodoOperation> operations;
+        // 取出记录后立即清空，之后来自其他线程的修改会再次标记为脏，由下一次保存写出
+        synchronized (this) {
+            fullSave = fullSaveRequested;
+            operations = new ArrayList<>(pendingOperations);
+            clearPending();
+        }
+        boolean useJournal = config.isJournalEnabled() && !fullSave;
+
+        if (useJournal) {
+            // 目录在客户端线程上捕获，写入期间切换世界也不会写到新世界的目录
+            Path directory = TodoDataManager.getTodoDirectory();
+            long compactThreshold = config.getJournalCompactBytes();
+            TodoConfig.StorageFormat format = config.getStorageFormat();
+            LocalDateTime archiveCutoff = TodoArchive.getCutoff();
+
+            if (operations.isEmpty()) return;
+            // 每次追加的开销只与修改数量有关，跨世界目录留到日志合并或 flush 时再更新
+            catalogStale = true;
+            writer.submit(() -> {
+                if (!TodoJournal.append(directory, operations, compactThreshold, format, archiveCutoff)) {
+                    LOGGER.error("Failed to save todo items to journal");
+                }
+            });
+            return;
+        }
+
+        // 快照必须在客户端线程捕获，后台线程只负责序列化和写入
+        // 先读版本号再读列表，列表只会比版本号新，下一次保存时会发现版本号变化
+        TodoListManager manager = TodoListManager.getInstance();
+        long listVersion = manager.getVersion();
+        TodoDataManager.SaveSnapshot snapshot = TodoDataManager.captureSnapshot(
+                manager.getAllTodoItems(), listVersion);
+
+        // 与上一次保存相比没有任何变化，不做写入
+        if (snapshot.isEmpty()) return;
+        if (snapshot.hasSummary()) {
+            catalogStale = false;
+        }
+        writer.submit(() -> {
+            if (TodoDataManager.writeSnapshot(snapshot)) {
+                LOGGER.info("Successfully saved " + snapshot.size() + " todo items to file");
+            } else {
+                LOGGER.error("Failed to save todo items to file");
+            }
+        });
+    }
+
+    /**
+     * 日志追加之后更新跨世界目录中当前世界的摘要，在断开连接和退出游戏时由 flush 调用
+     */
+    private void submitCatalogUpdate() {
+        if (!catalogStale) return;
+        catalogStale = false;
+        if (!WorldStorageContext.isOpen()) return;
+
+        Path directory = TodoDataManager.getTodoDirectory();
+        TodoCatalog.WorldSummary summary = TodoDataManager.summarize(directory,
+                TodoListManager.getInstance().getAllTodoItems(), TodoArchive.getCutoff());
+        writer.submit(() -> TodoCatalog.update(directory.getParent(), summary));
+    }
+
+    private synchronized void clearPending() {
+        pendingOperations.clear();
+        fullSaveRequested = false;
+        dirty = false;
+    }
+}
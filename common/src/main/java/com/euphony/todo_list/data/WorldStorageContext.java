@@ -0,0 +1,136 @@
+package com.euphony.todo_list.data;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.euphony.todo_list.TodoList.LOGGER;
+
+/**
+ * 当前世界（或服务器）的存储上下文
+ * 加入世界时解析一次存储目录并持有锁文件，断开连接时关闭
+ * 保存和加载直接使用这里的目录，不再每次重新获取世界名称和创建目录
+ * 上下文只在客户端线程上切换；后台线程不读取当前上下文，而是使用提交任务时捕获的目录
+ */
+public final class WorldStorageContext {
+    private static final String LOCK_FILE = "todolist.lock";
+
+    private static volatile WorldStorageContext current;
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final SnapshotCache snapshotCache = new SnapshotCache();
+
+    private WorldStorageContext(Path directory, FileChannel lockChannel, FileLock lock) {
+        this.directory = directory;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+    }
+
+    /**
+     * 获取当前的存储上下文
+     * 没有打开或已经关闭时抛出异常，不会自行重新打开，避免把数据写入另一个世界的目录
+     */
+    public static WorldStorageContext current() {
+        WorldStorageContext context = current;
+        if (context == null) {
+            throw new IllegalStateException("Todo storage is not open");
+        }
+        return context;
+    }
+
+    /**
+     * 是否已为当前世界打开存储上下文
+     */
+    public static boolean isOpen() {
+        return current != null;
+    }
+
+    /**
+     * 关闭当前的存储上下文并释放锁文件，在断开连接和退出游戏时调用
+     * 调用前应先等待所有排队的写入完成
+     */
+    public static void close() {
+        WorldStorageContext context = current;
+        if (context == null) return;
+
+        current = null;
+        context.release();
+    }
+
+    /**
+     * 启用在后台准备好的存储上下文，之前的上下文会被关闭
+     */
+    static void install(WorldStorageContext context) {
+        close();
+        current = context;
+    }
+
+    /**
+     * 释放锁文件，用于关闭或丢弃不再使用的上下文
+     */
+    void release() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to release todo storage lock: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 准备新的存储上下文：创建目录并获取锁文件
+     * 可以在后台线程调用，之后由 install 在客户端线程启用
+     */
+    static WorldStorageContext prepare(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOGGER.error("Failed to create todo directory: " + directory, e);
+            return new WorldStorageContext(directory, null, null);
+        }
+
+        // 同一目录可能被另一个游戏实例使用（例如两个客户端连接同一服务器），此时仍然继续，只给出警告
+        FileChannel channel = null;
+        FileLock lock = null;
+        try {
+            channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = channel.tryLock();
+            if (lock == null) {
+                LOGGER.warn("Todo storage is in use by another game instance: " + directory);
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            LOGGER.warn("Failed to lock todo storage " + directory + ": " + e.getMessage());
+        }
+
+        return new WorldStorageContext(directory, channel, lock);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 本次会话中已写入磁盘的数据状态，用于跳过未修改的文件和记录
+     */
+    SnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+
+    /**
+     * 是否独占了该存储目录
+     */
+    public boolean isLocked() {
+        return lock != null && lock.isValid();
+    }
+}
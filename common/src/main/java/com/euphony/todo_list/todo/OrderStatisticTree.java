@@ -0,0 +1,230 @@
+package com.euphony.todo_list.todo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 按某种排序方式排列的待办事项，使用记录子树大小的 treap（随机优先级的平衡二叉树）
+ * 增删、按位置取条目和求条目的位置都是 O(log n)，从任意位置开始顺序遍历不需要先复制列表
+ * 条目在树中时排序键不能改变：修改前先 remove，修改后再 add
+ * 不是线程安全的：由 TodoListManager 在写锁内修改，在读锁内读取
+ */
+final class OrderStatisticTree {
+    private final Comparator<TodoItem> comparator;
+    private Node root;
+    private int seed = 0x2545F491;
+
+    OrderStatisticTree(Comparator<TodoItem> comparator) {
+        this.comparator = comparator;
+    }
+
+    Comparator<TodoItem> comparator() {
+        return comparator;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * 按给定的条目重新建立整棵树，先排序再按顺序线性建树
+     */
+    void rebuild(Collection<TodoItem> items) {
+        List<TodoItem> sorted = new ArrayList<>(items);
+        sorted.sort(comparator);
+
+        // 按顺序加入时，右侧链上优先级比新节点低的节点成为它的左子树
+        ArrayDeque<Node> spine = new ArrayDeque<>();
+        for (TodoItem item : sorted) {
+            Node node = new Node(item, nextPriority());
+            Node last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                last = spine.pop();
+                update(last);
+            }
+            node.left = last;
+            if (!spine.isEmpty()) spine.peek().right = node;
+            spine.push(node);
+        }
+        Node top = null;
+        while (!spine.isEmpty()) {
+            top = spine.pop();
+            update(top);
+        }
+        root = top;
+    }
+
+    void add(TodoItem item) {
+        root = insert(root, new Node(item, nextPriority()));
+    }
+
+    void remove(TodoItem item) {
+        root = delete(root, item);
+    }
+
+    /**
+     * 第 index 个条目（从 0 开始）
+     */
+    TodoItem get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.item;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IllegalStateException("Inconsistent subtree sizes");
+    }
+
+    /**
+     * 条目在树中的位置，不在树中时返回 -1
+     */
+    int rank(TodoItem item) {
+        Node node = root;
+        int rank = 0;
+        while (node != null) {
+            int cmp = comparator.compare(item, node.item);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return node.item == item ? rank + size(node.left) : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从第 from 个条目开始按顺序访问，action 返回 false 时停止
+     */
+    void forEach(int from, Predicate<TodoItem> action) {
+        // 栈中是尚未访问、位于当前位置之后的祖先节点
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        int index = from;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                stack.push(node);
+                node = node.left;
+            } else if (index == leftSize) {
+                stack.push(node);
+                break;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+
+        while (!stack.isEmpty()) {
+            node = stack.pop();
+            if (!action.test(node.item)) return;
+            for (Node child = node.right; child != null; child = child.left) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) return added;
+        if (comparator.compare(added.item, node.item) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) return rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) return rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, TodoItem item) {
+        if (node == null) return null;
+        int cmp = comparator.compare(item, node.item);
+        if (cmp < 0) {
+            node.left = delete(node.left, item);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, item);
+        } else if (node.item == item) {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private int nextPriority() {
+        // xorshift 随机数，只在写锁内调用
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+
+    private static final class Node {
+        final TodoItem item;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(TodoItem item, int priority) {
+            this.item = item;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.euphony.todo_list.todo;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * 在 StampedLock 的读锁内读取
+ * 查询会遍历索引和排序树，不能在乐观读取中执行：与写入交错时可能读到不一致的结构，结果无法可靠地检查
+ * 读取过程不能修改任何状态，也不能再次获取同一把锁（有写入排队时会死锁）
+ */
+final class StampedReads {
+    private StampedReads() {
+    }
+
+    static <T> T read(StampedLock lock, Supplier<T> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
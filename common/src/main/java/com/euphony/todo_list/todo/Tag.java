@@ -1,31 +1,49 @@
 package com.euphony.todo_list.todo;
 
+import java.util.BitSet;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Tag {
     private final UUID id;
-    private String name;
-    private int color; // RGB颜色值
+    // 只能通过 TagManager 修改，在它的写锁内进行，其他线程不加锁读取
+    private volatile String name;
+    private volatile int color; // RGB颜色值
+    private final AtomicInteger version = new AtomicInteger(); // 每次修改递增
+    // 由 TagManager 分配的序号和位图，与已管理的相同 ID 的标签对象共用
+    private final Slot slot;
 
     public Tag(String name, int color) {
-        this.id = UUID.randomUUID();
-        this.name = name;
-        this.color = color;
+        this(UUID.randomUUID(), name, color);
     }
 
     public Tag(UUID id, String name, int color) {
         this.id = id;
         this.name = name;
         this.color = color;
+        this.slot = TagManager.getInstance().slotOf(id);
     }
 
     // Getters and setters
     public UUID getId() { return id; }
     public String getName() { return name; }
-    public void setName(String name) { this.name = name; }
+    void setName(String name) { this.name = name; version.incrementAndGet(); }
     public int getColor() { return color; }
-    public void setColor(int color) { this.color = color; }
+    void setColor(int color) { this.color = color; version.incrementAndGet(); }
+    public int getVersion() { return version.get(); }
+    /**
+     * 序号只用于待办事项中标签的排序和二分查找，是否为同一个标签按 ID 判断
+     */
+    int getOrdinal() { return slot.ordinal(); }
+
+    Slot getSlot() { return slot; }
+
+    /**
+     * 带有该标签的待办事项编号，只读；按标签筛选时直接对这些位图求并集或交集
+     * 由 TodoItem 的标签方法维护
+     */
+    BitSet getItems() { return slot.items(); }
 
     @Override
     public boolean equals(Object o) {
@@ -44,4 +62,7 @@ public class Tag {
     public String toString() {
         return name;
     }
+
+    record Slot(int ordinal, BitSet items) {
+    }
 }
@@ -1,11 +1,31 @@
 package com.euphony.todo_list.todo;
 
+import com.euphony.todo_list.data.TodoOperation;
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import com.euphony.todo_list.utils.Utils;
+
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
 
+/**
+ * 标签管理，可以在任何线程读取和修改
+ * 修改在写锁内串行执行，读取在读锁内进行；保存记录在释放写锁后提交
+ */
 public class TagManager {
-    private static TagManager instance;
+    // 标签的序号，在整个游戏过程中递增，不同世界的标签也不会重复
+    private static final AtomicInteger ORDINALS = new AtomicInteger();
+
     private final Map<UUID, Tag> tags = new HashMap<>();
+    // 已管理标签的序号和位图，之后创建的相同 ID 的标签对象与它共用；只在写锁内修改，随标签删除
+    private final Map<UUID, Tag.Slot> slots = new ConcurrentHashMap<>();
+    // 小写名称到标签的索引，创建标签时查重和按名称查找不需要遍历
+    private final Map<String, Tag> tagsByName = new HashMap<>();
+    private final StampedLock lock = new StampedLock();
+    // 标签增删或改名时递增，搜索用的名称索引据此判断是否过期
+    private volatile long namesVersion = 0;
+    private volatile TagNameIndex nameIndex = TagNameIndex.EMPTY;
 
     // 预定义的标签颜色
     private static final int[] PREDEFINED_COLORS = {
@@ -22,80 +42,261 @@ public class TagManager {
     };
 
     private int colorIndex = 0;
+    private long modCount = 0; // 增删标签时递增
+
+    private TagManager() {
+    }
+
+    private static final class Holder {
+        static final TagManager INSTANCE = new TagManager();
+    }
 
     public static TagManager getInstance() {
-        if (instance == null) {
-            instance = new TagManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     public Tag createTag(String name) {
-        // 检查是否已存在同名标签
-        for (Tag tag : tags.values()) {
-            if (tag.getName().equalsIgnoreCase(name)) {
-                return tag; // 返回已存在的标签
+        Tag tag;
+        long stamp = lock.writeLock();
+        try {
+            // 检查是否已存在同名标签
+            Tag existing = tagsByName.get(Utils.fold(name));
+            if (existing != null) {
+                return existing; // 返回已存在的标签
             }
-        }
 
-        // 创建新标签
-        int color = PREDEFINED_COLORS[colorIndex % PREDEFINED_COLORS.length];
-        colorIndex++;
+            // 创建新标签
+            int color = PREDEFINED_COLORS[colorIndex % PREDEFINED_COLORS.length];
+            colorIndex++;
 
-        Tag tag = new Tag(name, color);
-        tags.put(tag.getId(), tag);
+            tag = new Tag(name, color);
+            put(tag);
+            modCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        TodoSaveScheduler.getInstance().record(TodoOperation.putTag(tag));
         return tag;
     }
 
     public Tag createTag(String name, int color) {
-        // 检查是否已存在同名标签
-        for (Tag tag : tags.values()) {
-            if (tag.getName().equalsIgnoreCase(name)) {
+        Tag tag;
+        long stamp = lock.writeLock();
+        try {
+            // 检查是否已存在同名标签
+            tag = tagsByName.get(Utils.fold(name));
+            if (tag != null) {
                 tag.setColor(color); // 更新颜色
-                return tag;
+            } else {
+                tag = new Tag(name, color);
+                put(tag);
+                modCount++;
             }
+        } finally {
+            lock.unlockWrite(stamp);
         }
-
-        Tag tag = new Tag(name, color);
-        tags.put(tag.getId(), tag);
+        TodoSaveScheduler.getInstance().record(TodoOperation.putTag(tag));
         return tag;
     }
 
     public void addTag(Tag tag) {
-        tags.put(tag.getId(), tag);
+        long stamp = lock.writeLock();
+        try {
+            Tag replaced = put(tag);
+            modCount += (replaced != null ? replaced.getVersion() : 0) + 1;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        TodoSaveScheduler.getInstance().record(TodoOperation.putTag(tag));
     }
 
     public void removeTag(UUID tagId) {
-        tags.remove(tagId);
+        Tag removed;
+        long stamp = lock.writeLock();
+        try {
+            removed = tags.remove(tagId);
+            if (removed != null) {
+                slots.remove(tagId);
+                unindexName(removed);
+                namesVersion++;
+                // 加上被删除标签的版本，保证总版本号不会回退
+                modCount += removed.getVersion() + 1;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (removed != null) {
+            TodoSaveScheduler.getInstance().record(TodoOperation.removeTag(tagId));
+        }
+    }
+
+    /**
+     * 修改标签名称并更新名称索引；已有其他同名标签（不区分大小写）或标签不存在时不修改，返回 false
+     */
+    public boolean renameTag(UUID tagId, String name) {
+        Tag tag;
+        long stamp = lock.writeLock();
+        try {
+            tag = tags.get(tagId);
+            if (tag == null) return false;
+            Tag existing = tagsByName.get(Utils.fold(name));
+            if (existing != null && existing != tag) return false;
+
+            unindexName(tag);
+            tag.setName(name);
+            tagsByName.putIfAbsent(Utils.fold(name), tag);
+            namesVersion++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        TodoSaveScheduler.getInstance().record(TodoOperation.putTag(tag));
+        return true;
+    }
+
+    public void setTagColor(UUID tagId, int color) {
+        Tag tag;
+        long stamp = lock.writeLock();
+        try {
+            tag = tags.get(tagId);
+            if (tag == null) return;
+            tag.setColor(color);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        TodoSaveScheduler.getInstance().record(TodoOperation.putTag(tag));
     }
 
     public Tag getTag(UUID tagId) {
-        return tags.get(tagId);
+        return StampedReads.read(lock, () -> tags.get(tagId));
+    }
+
+    /**
+     * 按名称查找标签，不区分大小写，找不到时返回 null
+     */
+    public Tag findTag(String name) {
+        String key = Utils.fold(name);
+        return StampedReads.read(lock, () -> tagsByName.get(key));
     }
 
     public List<Tag> getAllTags() {
-        return new ArrayList<>(tags.values());
+        return StampedReads.read(lock, () -> new ArrayList<>(tags.values()));
     }
 
+    /**
+     * 名称包含关键字的标签，不区分大小写；名称以关键字开头的排在前面，其余按名称排序
+     * 关键字为空时返回所有标签；返回的列表不应修改
+     */
     public List<Tag> searchTags(String query) {
-        return tags.values().stream()
-                .filter(tag -> tag.getName().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+        return nameIndex().search(Utils.fold(query));
+    }
+
+    /**
+     * 标签名称索引的版本号，标签增删或改名后变化，界面可据此缓存搜索结果
+     */
+    public long getNamesVersion() {
+        return namesVersion;
+    }
+
+    private TagNameIndex nameIndex() {
+        TagNameIndex index = nameIndex;
+        if (index.getVersion() != namesVersion) {
+            // 在读锁下构建，保证索引内容与记录的版本号一致
+            index = StampedReads.read(lock, () -> TagNameIndex.build(tags.values(), namesVersion));
+            nameIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * 加入或替换标签并更新名称索引，需要持有写锁；同名标签已存在时名称索引保留原来的
+     */
+    private Tag put(Tag tag) {
+        Tag replaced = tags.put(tag.getId(), tag);
+        if (replaced != null) {
+            unindexName(replaced);
+        }
+        slots.put(tag.getId(), tag.getSlot());
+        tagsByName.putIfAbsent(Utils.fold(tag.getName()), tag);
+        namesVersion++;
+        return replaced;
+    }
+
+    private void unindexName(Tag tag) {
+        String key = Utils.fold(tag.getName());
+        if (tagsByName.remove(key, tag)) {
+            // 还有其他同名标签时由它代替，只在删除时遍历一次；改名时 tag 本身还在 tags 中，要跳过
+            for (Tag other : tags.values()) {
+                if (other != tag && Utils.fold(other.getName()).equals(key)) {
+                    tagsByName.put(key, other);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void rebuildNames() {
+        tagsByName.clear();
+        for (Tag tag : tags.values()) {
+            tagsByName.putIfAbsent(Utils.fold(tag.getName()), tag);
+        }
+        namesVersion++;
+    }
+
+    /**
+     * 新建标签对象使用的序号和位图：已管理的标签沿用它的，否则分配新的，加入管理时才登记
+     */
+    Tag.Slot slotOf(UUID id) {
+        Tag.Slot slot = slots.get(id);
+        return slot != null ? slot : new Tag.Slot(ORDINALS.getAndIncrement(), new BitSet());
     }
 
     public void clear() {
-        tags.clear();
-        colorIndex = 0;
+        long stamp = lock.writeLock();
+        try {
+            tags.values().forEach(tag -> modCount += tag.getVersion());
+            tags.clear();
+            slots.clear();
+            rebuildNames();
+            modCount++;
+            colorIndex = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     // 获取所有标签的Map形式，用于序列化
     public Map<UUID, Tag> getTagsMap() {
-        return new HashMap<>(tags);
+        return StampedReads.read(lock, () -> new HashMap<>(tags));
     }
 
     // 从Map设置标签，用于反序列化
     public void setTagsFromMap(Map<UUID, Tag> tagsMap) {
-        this.tags.clear();
-        this.tags.putAll(tagsMap);
+        long stamp = lock.writeLock();
+        try {
+            this.tags.values().forEach(tag -> modCount += tag.getVersion());
+            this.tags.clear();
+            this.tags.putAll(tagsMap);
+            slots.clear();
+            for (Tag tag : tagsMap.values()) {
+                slots.put(tag.getId(), tag.getSlot());
+            }
+            rebuildNames();
+            modCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 标签数据的版本号，任何标签被增删或修改后都会变化，保存时据此跳过未修改的 tags.json
+     */
+    public long getVersion() {
+        return StampedReads.read(lock, () -> {
+            long version = modCount;
+            for (Tag tag : tags.values()) {
+                version += tag.getVersion();
+            }
+            return version;
+        });
     }
 }
@@ -0,0 +1,104 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.utils.Utils;
+
+import java.util.*;
+
+/**
+ * 标签名称的只读索引，用于按关键字搜索标签（例如标签选择面板的自动补全）
+ * 把每个小写名称的所有后缀排成有序数组，包含关键字的名称正好是以关键字开头的后缀，
+ * 二分查找到第一个后缀后顺序取出，耗时与匹配数量成正比，结果与逐个 contains 一致
+ * 由 TagManager 在标签增删后重新构建，构建后不再修改，可以在多个线程同时使用
+ */
+final class TagNameIndex {
+    static final TagNameIndex EMPTY = build(List.of(), 0);
+
+    private final long version;
+    // 按小写名称排序的所有标签，关键字为空时直接返回
+    private final List<Tag> byName;
+    private final String[] suffixes;
+    // 后缀所属标签在 byName 中的位置，按位置输出即为名称顺序
+    private final int[] suffixRanks;
+    // 后缀在名称中的起始位置，为 0 表示名称以关键字开头
+    private final int[] suffixOffsets;
+
+    private TagNameIndex(long version, List<Tag> byName, String[] suffixes, int[] suffixRanks, int[] suffixOffsets) {
+        this.version = version;
+        this.byName = byName;
+        this.suffixes = suffixes;
+        this.suffixRanks = suffixRanks;
+        this.suffixOffsets = suffixOffsets;
+    }
+
+    static TagNameIndex build(Collection<Tag> tags, long version) {
+        List<Tag> byName = new ArrayList<>(tags);
+        byName.sort(Comparator.comparing(tag -> Utils.fold(tag.getName())));
+
+        List<Suffix> entries = new ArrayList<>();
+        for (int rank = 0; rank < byName.size(); rank++) {
+            String name = Utils.fold(byName.get(rank).getName());
+            for (int i = 0; i < name.length(); i++) {
+                entries.add(new Suffix(name.substring(i), rank, i));
+            }
+        }
+        entries.sort(Comparator.comparing(Suffix::text));
+
+        String[] suffixes = new String[entries.size()];
+        int[] suffixRanks = new int[entries.size()];
+        int[] suffixOffsets = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            Suffix entry = entries.get(i);
+            suffixes[i] = entry.text;
+            suffixRanks[i] = entry.rank;
+            suffixOffsets[i] = entry.offset;
+        }
+        return new TagNameIndex(version, Collections.unmodifiableList(byName), suffixes, suffixRanks, suffixOffsets);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * 名称包含关键字的标签，关键字应已转为小写
+     * 名称以关键字开头的排在前面，其余的按名称排序
+     */
+    List<Tag> search(String query) {
+        if (query.isEmpty()) return byName;
+
+        int from = lowerBound(query);
+        BitSet prefixed = new BitSet(byName.size());
+        BitSet contained = new BitSet(byName.size());
+        for (int i = from; i < suffixes.length && suffixes[i].startsWith(query); i++) {
+            // 一个名称中多次出现关键字时位图只记录一次
+            (suffixOffsets[i] == 0 ? prefixed : contained).set(suffixRanks[i]);
+        }
+        contained.andNot(prefixed);
+
+        List<Tag> results = new ArrayList<>(prefixed.cardinality() + contained.cardinality());
+        for (int rank = prefixed.nextSetBit(0); rank >= 0; rank = prefixed.nextSetBit(rank + 1)) {
+            results.add(byName.get(rank));
+        }
+        for (int rank = contained.nextSetBit(0); rank >= 0; rank = contained.nextSetBit(rank + 1)) {
+            results.add(byName.get(rank));
+        }
+        return results;
+    }
+
+    private int lowerBound(String query) {
+        int low = 0;
+        int high = suffixes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (suffixes[mid].compareTo(query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private record Suffix(String text, int rank, int offset) {
+    }
+}
@@ -1,48 +1,239 @@
 package com.euphony.todo_list.todo;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.UUID;
 
 public class TodoItem {
+    private static final Tag[] NO_TAGS = new Tag[0];
+    // 时间不保存为 LocalDateTime 对象（每个约 72 字节），而是按 UTC 纪元微秒保存，NO_TIME 表示未设置
+    static final long NO_TIME = Long.MIN_VALUE;
+    private static final long MAX_SECONDS = Long.MAX_VALUE / 1_000_000L - 1;
+
     private final UUID id;
     private String title;
     private String description;
     private boolean completed;
-    private LocalDateTime createdAt;
-    private LocalDateTime dueDate;
-    private List<Tag> tags;
+    private long createdAt;
+    private long completedAt = NO_TIME;
+    private long dueDate = NO_TIME;
+    // 按标签序号排序且不重复（按 ID 判断），修改时整体替换；没有标签的条目共用同一个空数组
+    private Tag[] tags;
+    private List<Tag> tagView; // getTags 返回的只读视图，第一次调用时创建
+    private int version; // 每次修改递增，保存时据此跳过未修改的条目
+    private int number = -1; // 在清单搜索索引中的编号，不在清单中时为 -1
+    private long sequence; // 加入清单的顺序，由 TodoListManager 在加入时分配，留在清单期间不变
 
     public TodoItem(String title, String description) {
+        this(title, description, List.of(), null);
+    }
+
+    public TodoItem(String title, String description, List<Tag> tags, LocalDateTime dueDate) {
         this.id = UUID.randomUUID();
         this.title = title;
         this.description = description;
         this.completed = false;
-        this.createdAt = LocalDateTime.now();
-        this.tags = new ArrayList<>();
+        this.createdAt = toMicros(LocalDateTime.now());
+        this.dueDate = toMicros(dueDate);
+        this.tags = sortedTags(tags);
+    }
+
+    // 从存储中恢复已有的待办事项
+    public TodoItem(UUID id, String title, String description, boolean completed,
+                    LocalDateTime createdAt, LocalDateTime completedAt, LocalDateTime dueDate, List<Tag> tags) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.completed = completed;
+        this.createdAt = toMicros(createdAt);
+        this.completedAt = completed ? toMicros(completedAt) : NO_TIME;
+        this.dueDate = toMicros(dueDate);
+        this.tags = sortedTags(tags);
     }
 
     // Getters and setters
+    // 修改方法只能由 TodoListManager 调用，它负责同时更新排序视图和搜索索引
     public UUID getId() { return id; }
     public String getTitle() { return title; }
-    public void setTitle(String title) { this.title = title; }
+    void setTitle(String title) { this.title = title; version++; }
     public String getDescription() { return description; }
-    public void setDescription(String description) { this.description = description; }
+    void setDescription(String description) { this.description = description; version++; }
     public boolean isCompleted() { return completed; }
-    public void setCompleted(boolean completed) { this.completed = completed; }
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public LocalDateTime getDueDate() { return dueDate; }
-    public void setDueDate(LocalDateTime dueDate) { this.dueDate = dueDate; }
+    void setCompleted(boolean completed) {
+        // 记录完成时间，用于归档已完成很久的待办事项
+        if (completed && !this.completed) {
+            this.completedAt = toMicros(LocalDateTime.now());
+        } else if (!completed) {
+            this.completedAt = NO_TIME;
+        }
+        this.completed = completed;
+        version++;
+    }
+    // 每次调用都会创建新的 LocalDateTime，频繁比较时使用下面按微秒返回的方法
+    public LocalDateTime getCreatedAt() { return ofMicros(createdAt); }
+    public LocalDateTime getCompletedAt() { return ofMicros(completedAt); }
+    public LocalDateTime getDueDate() { return ofMicros(dueDate); }
+    void setDueDate(LocalDateTime dueDate) { this.dueDate = toMicros(dueDate); version++; }
+
+    long getCreatedMicros() { return createdAt; }
+    long getDueMicros() { return dueDate; }
+
+    /**
+     * 把时间转为 UTC 纪元微秒，null 转为 NO_TIME；超出约 ±29 万年的时间会被截断
+     */
+    static long toMicros(LocalDateTime time) {
+        if (time == null) return NO_TIME;
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (seconds > MAX_SECONDS) return Long.MAX_VALUE;
+        if (seconds < -MAX_SECONDS) return NO_TIME + 1;
+        return seconds * 1_000_000L + time.getNano() / 1000;
+    }
+
+    static LocalDateTime ofMicros(long micros) {
+        if (micros == NO_TIME) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
 
     // 新增标签相关方法
-    public List<Tag> getTags() { return new ArrayList<>(tags); }
-    public void setTags(List<Tag> tags) { this.tags = new ArrayList<>(tags); }
-    public void addTag(Tag tag) {
-        if (!this.tags.contains(tag)) {
-            this.tags.add(tag);
+
+    /**
+     * 条目的标签，按标签序号排列；返回的是只读视图，不会复制，之后的修改会反映在视图中
+     */
+    public List<Tag> getTags() {
+        if (tagView == null) {
+            tagView = new TagView();
+        }
+        return tagView;
+    }
+    public int getTagCount() { return tags.length; }
+    void setTags(List<Tag> tags) {
+        Tag[] sorted = sortedTags(tags);
+        // 同步更新标签的位图
+        if (number >= 0) {
+            for (Tag tag : this.tags) tag.getItems().clear(number);
+            for (Tag tag : sorted) tag.getItems().set(number);
+        }
+        this.tags = sorted;
+        version++;
+    }
+    void addTag(Tag tag) {
+        int index = indexOf(tag);
+        if (index < 0) {
+            index = -(index + 1);
+            Tag[] added = new Tag[tags.length + 1];
+            System.arraycopy(tags, 0, added, 0, index);
+            added[index] = tag;
+            System.arraycopy(tags, index, added, index + 1, tags.length - index);
+            this.tags = added;
+            if (number >= 0) tag.getItems().set(number);
+            version++;
+        }
+    }
+    void removeTag(Tag tag) {
+        int index = indexOf(tag);
+        if (index >= 0) {
+            // 清除条目中保存的那个标签对象的位图
+            Tag stored = tags[index];
+            Tag[] removed = tags.length == 1 ? NO_TAGS : new Tag[tags.length - 1];
+            System.arraycopy(tags, 0, removed, 0, index);
+            System.arraycopy(tags, index + 1, removed, index, tags.length - index - 1);
+            this.tags = removed;
+            if (number >= 0) stored.getItems().clear(number);
+            version++;
+        }
+    }
+    public boolean hasTag(Tag tag) { return indexOf(tag) >= 0; }
+
+    /**
+     * 按序号二分查找，序号相同时再按 ID 确认；返回值与 Arrays.binarySearch 相同
+     * 相同 ID 的标签对象通常共用序号，没有找到时再逐个按 ID 比较（例如标签删除后又创建的对象）
+     */
+    private int indexOf(Tag tag) {
+        int ordinal = tag.getOrdinal();
+        int low = 0;
+        int high = tags.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midOrdinal = tags[mid].getOrdinal();
+            if (midOrdinal < ordinal) {
+                low = mid + 1;
+            } else if (midOrdinal > ordinal) {
+                high = mid - 1;
+            } else if (tags[mid].equals(tag)) {
+                return mid;
+            } else {
+                break;
+            }
+        }
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i].equals(tag)) return i;
+        }
+        return -(low + 1);
+    }
+
+    private static Tag[] sortedTags(Collection<Tag> tags) {
+        if (tags.isEmpty()) return NO_TAGS;
+        Tag[] sorted = tags.toArray(NO_TAGS);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.getOrdinal(), b.getOrdinal()));
+
+        // 按 ID 去除重复的标签；相同 ID 的对象序号可能不同，不一定相邻，每个条目的标签很少，逐个比较
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            boolean duplicate = false;
+            for (int j = 0; j < size && !duplicate; j++) {
+                duplicate = sorted[j].equals(sorted[i]);
+            }
+            if (!duplicate) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    public int getVersion() { return version; }
+
+    int getNumber() { return number; }
+
+    long getSequence() { return sequence; }
+
+    void setSequence(long sequence) { this.sequence = sequence; }
+
+    /**
+     * 由搜索索引在加入或移出清单时设置，同时更新所带标签的位图
+     */
+    void setNumber(int number) {
+        if (this.number >= 0) {
+            for (Tag tag : tags) tag.getItems().clear(this.number);
+        }
+        this.number = number;
+        if (number >= 0) {
+            for (Tag tag : tags) tag.getItems().set(number);
+        }
+    }
+
+    /**
+     * 标签数组的只读视图，每次读取当前的数组
+     */
+    private final class TagView extends AbstractList<Tag> implements RandomAccess {
+        @Override
+        public Tag get(int index) {
+            return tags[index];
+        }
+
+        @Override
+        public int size() {
+            return tags.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Tag tag && hasTag(tag);
         }
     }
-    public void removeTag(Tag tag) { this.tags.remove(tag); }
-    public boolean hasTag(Tag tag) { return this.tags.contains(tag); }
 }
@@ -1,131 +1,804 @@
 package com.euphony.todo_list.todo;
 
+import com.euphony.todo_list.data.TodoArchive;
 import com.euphony.todo_list.data.TodoDataManager;
+import com.euphony.todo_list.data.TodoOperation;
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import com.euphony.todo_list.data.WorldStorageContext;
+import com.euphony.todo_list.utils.Utils;
+import net.minecraft.client.Minecraft;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.StampedLock;
 
+import static com.euphony.todo_list.TodoList.LOGGER;
+
+/**
+ * 待办清单，可以在任何线程读取和修改
+ * 修改在写锁内串行执行，查找和查询在读锁内执行，多个读取可以同时进行
+ * {@link #getSnapshot()} 在增删条目后第一次读取时才复制列表，连续的修改不会每次都复制整个清单
+ * 锁只保护清单结构和索引；条目的修改方法不公开，只能通过本类修改，以便同时更新排序视图和索引
+ * 写锁不可重入，锁内不能调用本类的公开方法，也不能调用可能回调本类的方法（例如保存器的 flush）
+ */
 public class TodoListManager {
-    private static TodoListManager instance;
-    private final List<TodoItem> todoItems;
-    private boolean isLoaded = false;
+    // 按加入顺序保存，ID 查找、修改和删除都不需要遍历列表
+    private final Map<UUID, TodoItem> todoItems;
+    // 标题、描述和标签名称的搜索索引，随每次修改增量更新
+    private final TodoSearchIndex searchIndex = new TodoSearchIndex();
+    // 按各种方式排序的视图，第一次使用某种排序时建立，之后随每次修改增量更新，不会再移除
+    private final Map<TodoSort, OrderStatisticTree> sortedViews = new EnumMap<>(TodoSort.class);
+    // 最近的分页查询，每次发布快照时清空
+    private final TodoQueryCache queryCache = new TodoQueryCache();
+    // 最近一次建立的只读快照，读取方不需要复制列表；版本落后于 publishedVersion 时在读取时重新建立
+    private volatile TodoSnapshot snapshot = TodoSnapshot.EMPTY;
+    private volatile long publishedVersion = 0; // 每次修改后递增，是当前快照应有的版本号
+    // 上次建立快照之后增删过条目，建立快照时需要重新复制列表；由 snapshotLock 保护
+    private boolean itemsChanged = false;
+    private final Object snapshotLock = new Object();
+    private final StampedLock lock = new StampedLock();
+    private volatile long version = 0; // 增删待办事项时递增
+    private long sequence = 0; // 最近分配的加入顺序，由写锁保护
+    private volatile boolean loading = false;
+    // 后台加载失败，仍保持加载状态：修改继续排队、不保存，等待重试
+    private volatile boolean loadFailed = false;
+    private volatile int loadGeneration = 0;
+    // 加载期间的修改按顺序排队，加载完成后再应用
+    private final List<Runnable> queuedEdits = new ArrayList<>();
 
     private TodoListManager() {
-        this.todoItems = new ArrayList<>();
+        this.todoItems = new LinkedHashMap<>();
+    }
+
+    // 类加载时创建，任何线程第一次访问都能看到完整初始化的实例
+    private static final class Holder {
+        static final TodoListManager INSTANCE = new TodoListManager();
     }
 
     public static TodoListManager getInstance() {
-        if (instance == null) {
-            instance = new TodoListManager();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 在后台加载当前世界的待办事项，加入世界时使用，不等待文件读取
+     * 加载完成前列表为空，界面显示加载提示，期间的修改排队到加载完成后应用
+     */
+    public CompletableFuture<Void> loadFromFileAsync() {
+        // 上一个世界尚未保存的修改先提交，读取排在这些写入之后
+        if (loading) {
+            cancelLoading();
+        } else {
+            TodoSaveScheduler.getInstance().submitPending();
         }
-        return instance;
+        WorldStorageContext.close();
+        TodoArchive.getInstance().reset();
+
+        int generation;
+        long stamp = lock.writeLock();
+        try {
+            generation = ++loadGeneration;
+            loading = true;
+            queuedEdits.clear();
+            todoItems.clear();
+            searchIndex.clear();
+            for (OrderStatisticTree view : sortedViews.values()) {
+                view.rebuild(List.of());
+            }
+            version++;
+            publish(true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        // 上一个世界的标签和提醒不应出现在新世界中
+        TagManager.getInstance().clear();
+        TodoReminders.getInstance().clear();
+
+        return startLoading(generation);
     }
 
     /**
-     * 从文件加载待办事项
+     * 后台加载失败后重新读取，期间排队的修改保留到加载完成后应用
      */
-    public void loadFromFile() {
-        List<TodoItem> loadedItems = TodoDataManager.loadTodos();
+    public CompletableFuture<Void> retryLoading() {
+        int generation;
+        long stamp = lock.writeLock();
+        try {
+            if (!loadFailed) return CompletableFuture.completedFuture(null);
+            loadFailed = false;
+            generation = ++loadGeneration;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return startLoading(generation);
+    }
+
+    private CompletableFuture<Void> startLoading(int generation) {
+        return TodoDataManager.loadTodosAsync()
+                .thenAcceptAsync(result -> {
+                    if (generation != loadGeneration) {
+                        // 加载期间又切换了世界，丢弃过期的结果
+                        TodoDataManager.discard(result);
+                        return;
+                    }
+                    List<Tag> createdTags = TagManager.getInstance().getAllTags();
+                    finishLoading(TodoDataManager.install(result), createdTags);
+                }, Minecraft.getInstance())
+                .exceptionally(e -> {
+                    LOGGER.error("Failed to load todo items in background", e);
+                    // 不能以空列表继续，否则之后的保存会覆盖已有数据；也不在客户端线程上同步重读
+                    // 保持加载状态，修改继续排队，由界面提示并重试
+                    Minecraft.getInstance().execute(() -> {
+                        if (generation == loadGeneration) {
+                            loadFailed = true;
+                        }
+                    });
+                    return null;
+                });
+    }
+
+    private void finishLoading(List<TodoItem> loadedItems, List<Tag> createdTags) {
+        long loadedVersion;
+        List<Runnable> edits;
+        long stamp = lock.writeLock();
+        try {
+            replaceAll(loadedItems);
+            loadedVersion = ++version;
+            publish(true);
+            loading = false;
+            edits = new ArrayList<>(queuedEdits);
+            queuedEdits.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        TodoDataManager.markLoaded(getAllTodoItems(), loadedVersion);
+        TodoReminders.getInstance().reset(getAllTodoItems());
+
+        // 加载期间创建的标签，在读取到的标签之上重新加入
+        for (Tag tag : createdTags) {
+            if (TagManager.getInstance().getTag(tag.getId()) == null) {
+                TagManager.getInstance().addTag(tag);
+            }
+        }
+        edits.forEach(Runnable::run);
+
+        LOGGER.info("Loaded " + loadedItems.size() + " todo items from file");
+    }
+
+    private void replaceAll(List<TodoItem> items) {
         todoItems.clear();
-        todoItems.addAll(loadedItems);
-        System.out.println("Loaded " + loadedItems.size() + " todo items from file");
+        for (TodoItem item : items) {
+            todoItems.put(item.getId(), item);
+        }
+        for (TodoItem item : todoItems.values()) {
+            item.setSequence(++sequence);
+        }
+        searchIndex.rebuild(todoItems.values());
+        for (OrderStatisticTree view : sortedViews.values()) {
+            view.rebuild(todoItems.values());
+        }
     }
 
     /**
-     * 保存待办事项到文件
+     * 条目加入清单或排序键修改后调用，需要持有写锁且条目已在搜索索引中
      */
-    public void saveToFile() {
-        boolean success = TodoDataManager.saveTodos(new ArrayList<>(todoItems));
-        if (success) {
-            System.out.println("Successfully saved " + todoItems.size() + " todo items to file");
-        } else {
-            System.err.println("Failed to save todo items to file");
+    private void addToSortedViews(TodoItem item) {
+        for (OrderStatisticTree view : sortedViews.values()) {
+            view.add(item);
+        }
+    }
+
+    /**
+     * 条目移出清单或修改排序键之前调用，需要持有写锁
+     */
+    private void removeFromSortedViews(TodoItem item) {
+        for (OrderStatisticTree view : sortedViews.values()) {
+            view.remove(item);
+        }
+    }
+
+    /**
+     * 发布新版本，需要持有写锁；structural 为 false 时只修改了条目内容，快照沿用原来的列表
+     * 快照在下次读取时才建立，连续删除多个条目时只复制一次清单
+     */
+    private void publish(boolean structural) {
+        if (structural) {
+            itemsChanged = true;
+        }
+        publishedVersion++;
+        queryCache.clear();
+    }
+
+    /**
+     * 当前版本的快照，需要持有读锁或写锁；同一版本只建立一次
+     */
+    private TodoSnapshot currentSnapshot() {
+        TodoSnapshot current = snapshot;
+        if (current.getVersion() == publishedVersion) return current;
+        // 多个读取方可能同时持有读锁，建立快照互斥
+        synchronized (snapshotLock) {
+            current = snapshot;
+            if (current.getVersion() != publishedVersion) {
+                List<TodoItem> items = itemsChanged ? List.copyOf(todoItems.values()) : current.getItems();
+                itemsChanged = false;
+                current = new TodoSnapshot(items, publishedVersion);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 放弃正在进行的后台加载，断开连接时调用
+     */
+    public void cancelLoading() {
+        boolean wasLoading;
+        long stamp = lock.writeLock();
+        try {
+            loadGeneration++;
+            wasLoading = loading;
+            loading = false;
+            loadFailed = false;
+            queuedEdits.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (wasLoading) {
+            // 加载期间的修改属于尚未打开的世界，不能写入其他位置
+            TodoSaveScheduler.getInstance().discardPending();
         }
     }
 
+    /**
+     * 是否正在后台加载，加载期间界面显示加载提示
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * 后台加载是否失败；失败后列表保持为空，修改继续排队，调用 {@link #retryLoading()} 重试
+     */
+    public boolean hasLoadFailed() {
+        return loadFailed;
+    }
+
+    /**
+     * 加载期间把修改排队，返回 true 表示已排队；需要持有写锁
+     */
+    private boolean queueWhileLoading(Runnable edit) {
+        if (!loading) return false;
+        queuedEdits.add(edit);
+        return true;
+    }
+
+    /**
+     * 记录一次修改，由后台保存器合并后延迟写入
+     */
+    private void record(TodoOperation operation) {
+        TodoSaveScheduler.getInstance().record(operation);
+    }
+
     public void addTodoItem(TodoItem item) {
-        todoItems.add(item);
-        saveToFile(); // 自动保存
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> addTodoItem(item))) return;
+            // 相同 ID 的条目被替换，先从排序视图和索引中移除，替换后的条目排在最后
+            TodoItem previous = todoItems.remove(item.getId());
+            if (previous != null) {
+                removeFromSortedViews(previous);
+                searchIndex.remove(previous.getId());
+            }
+            item.setSequence(++sequence);
+            todoItems.put(item.getId(), item);
+            searchIndex.add(item);
+            addToSortedViews(item);
+            version++;
+            publish(true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        record(TodoOperation.putTodo(item)); // 自动保存
+        TodoReminders.getInstance().schedule(item);
     }
 
     public void removeTodoItem(UUID id) {
-        todoItems.removeIf(item -> item.getId().equals(id));
-        saveToFile(); // 自动保存
+        TodoItem removed;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> removeTodoItem(id))) return;
+            removed = todoItems.remove(id);
+            if (removed != null) {
+                removeFromSortedViews(removed);
+                searchIndex.remove(id);
+                version++;
+                publish(true);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (removed != null && removed.isCompleted()) {
+            TodoArchive.getInstance().noteLeavingArchive(removed);
+        }
+        record(TodoOperation.removeTodo(id)); // 自动保存
+        TodoReminders.getInstance().cancel(id);
+    }
+
+    /**
+     * 合并从归档分片加载的待办事项，已在列表中的条目以内存中的为准
+     * 数据本来就在磁盘上，不记录修改；返回实际加入列表的条目
+     */
+    public List<TodoItem> mergeArchivedItems(Collection<TodoItem> items) {
+        List<TodoItem> merged = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            for (TodoItem item : items) {
+                if (!todoItems.containsKey(item.getId())) {
+                    item.setSequence(++sequence);
+                    todoItems.put(item.getId(), item);
+                    searchIndex.add(item);
+                    addToSortedViews(item);
+                    merged.add(item);
+                }
+            }
+            if (!merged.isEmpty()) {
+                version++;
+                publish(true);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return merged;
+    }
+
+    /**
+     * 从内存中卸载已归档的待办事项，磁盘上的数据保持不变
+     */
+    public void evictItems(Collection<UUID> ids) {
+        long stamp = lock.writeLock();
+        try {
+            List<UUID> evicted = new ArrayList<>();
+            for (UUID id : ids) {
+                TodoItem removed = todoItems.remove(id);
+                if (removed != null) {
+                    removeFromSortedViews(removed);
+                    evicted.add(id);
+                }
+            }
+            if (!evicted.isEmpty()) {
+                // 一次卸载很多条目时，共用的倒排表只整理一次
+                searchIndex.removeAll(evicted);
+                version++;
+                publish(true);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 待办清单结构的版本号，增删待办事项后变化；单个条目的修改由条目自身的版本号记录
+     */
+    public long getVersion() {
+        return version;
     }
 
+    /**
+     * 当前的只读快照，可以在任何线程读取；增删条目后第一次读取时复制一次列表
+     */
+    public TodoSnapshot getSnapshot() {
+        TodoSnapshot current = snapshot;
+        if (current.getVersion() == publishedVersion) return current;
+        long stamp = lock.readLock();
+        try {
+            return currentSnapshot();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 所有待办事项，返回的列表不可修改，不会复制
+     */
     public List<TodoItem> getAllTodoItems() {
-        return new ArrayList<>(todoItems);
+        return getSnapshot().getItems();
     }
 
     public TodoItem getTodoItem(UUID id) {
-        return todoItems.stream()
-                .filter(item -> item.getId().equals(id))
-                .findFirst()
-                .orElse(null);
+        return StampedReads.read(lock, () -> todoItems.get(id));
     }
 
     public void updateTodoItem(UUID id, String title, String description) {
-        TodoItem item = getTodoItem(id);
-        if (item != null) {
+        TodoItem item;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> updateTodoItem(id, title, description))) return;
+            item = todoItems.get(id);
+            if (item == null) return;
+            removeFromSortedViews(item);
             item.setTitle(title);
             item.setDescription(description);
-            saveToFile(); // 自动保存
+            searchIndex.update(item);
+            addToSortedViews(item);
+            publish(false);
+        } finally {
+            lock.unlockWrite(stamp);
         }
+        record(TodoOperation.putTodo(item)); // 自动保存
     }
 
     public void updateTodoItem(UUID id, String title, String description, List<Tag> tags) {
-        TodoItem item = getTodoItem(id);
-        if (item != null) {
+        TodoItem item;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> updateTodoItem(id, title, description, tags))) return;
+            item = todoItems.get(id);
+            if (item == null) return;
+            removeFromSortedViews(item);
             item.setTitle(title);
             item.setDescription(description);
             item.setTags(tags);
-            saveToFile(); // 自动保存
+            searchIndex.update(item);
+            addToSortedViews(item);
+            publish(false);
+        } finally {
+            lock.unlockWrite(stamp);
         }
+        record(TodoOperation.putTodo(item)); // 自动保存
+    }
+
+    /**
+     * 修改标题、描述、标签和截止时间，dueDate 为 null 表示不设截止时间，提醒随之重新安排
+     */
+    public void updateTodoItem(UUID id, String title, String description, List<Tag> tags, LocalDateTime dueDate) {
+        TodoItem item;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> updateTodoItem(id, title, description, tags, dueDate))) return;
+            item = todoItems.get(id);
+            if (item == null) return;
+            removeFromSortedViews(item);
+            item.setTitle(title);
+            item.setDescription(description);
+            item.setTags(tags);
+            item.setDueDate(dueDate);
+            searchIndex.update(item);
+            addToSortedViews(item);
+            publish(false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        record(TodoOperation.putTodo(item)); // 自动保存
+        TodoReminders.getInstance().schedule(item);
     }
 
     public void toggleCompleted(UUID id) {
-        TodoItem item = getTodoItem(id);
-        if (item != null) {
+        TodoItem item;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> toggleCompleted(id))) return;
+            item = todoItems.get(id);
+            if (item == null) return;
+            if (item.isCompleted()) {
+                // 取消完成的条目要回到活跃分区，需要在修改前记录，归档只会请求保存，不会回调本类
+                TodoArchive.getInstance().noteLeavingArchive(item);
+            }
+            removeFromSortedViews(item);
             item.setCompleted(!item.isCompleted());
-            saveToFile(); // 自动保存
+            searchIndex.updateColumns(item);
+            addToSortedViews(item);
+            publish(false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        record(TodoOperation.setCompleted(item)); // 自动保存
+        // 完成后取消提醒，取消完成时按截止时间重新安排
+        TodoReminders.getInstance().schedule(item);
+    }
+
+    /**
+     * 批量设置完成状态，作为一次修改：只发布一次快照，修改记录一起交给保存器
+     * 返回实际改变了状态的条目数量
+     */
+    public int setCompleted(Collection<UUID> ids, boolean completed) {
+        List<TodoItem> changed = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> setCompleted(ids, completed))) return 0;
+            for (UUID id : ids) {
+                TodoItem item = todoItems.get(id);
+                if (item == null || item.isCompleted() == completed) continue;
+                if (item.isCompleted()) {
+                    TodoArchive.getInstance().noteLeavingArchive(item);
+                }
+                removeFromSortedViews(item);
+                item.setCompleted(completed);
+                searchIndex.updateColumns(item);
+                addToSortedViews(item);
+                changed.add(item);
+            }
+            if (!changed.isEmpty()) {
+                publish(false);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        List<TodoOperation> operations = new ArrayList<>(changed.size());
+        for (TodoItem item : changed) {
+            operations.add(TodoOperation.setCompleted(item));
+            TodoReminders.getInstance().schedule(item);
+        }
+        TodoSaveScheduler.getInstance().recordAll(operations); // 自动保存
+        return changed.size();
+    }
+
+    /**
+     * 批量删除待办事项，搜索索引一次整理完，只发布一次快照
+     * 返回实际删除的条目数量
+     */
+    public int removeTodoItems(Collection<UUID> ids) {
+        List<TodoItem> removed;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> removeTodoItems(ids))) return 0;
+            removed = removeAll(ids);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        afterRemoveAll(removed);
+        return removed.size();
+    }
+
+    /**
+     * 删除所有已完成的待办事项，只包括已加载到内存中的归档条目
+     * 返回删除的条目数量
+     */
+    public int removeCompleted() {
+        List<TodoItem> removed;
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(this::removeCompleted)) return 0;
+            List<UUID> ids = new ArrayList<>(searchIndex.completedCount());
+            for (TodoItem item : todoItems.values()) {
+                if (item.isCompleted()) ids.add(item.getId());
+            }
+            removed = removeAll(ids);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        afterRemoveAll(removed);
+        return removed.size();
+    }
+
+    /**
+     * 从清单、排序视图和搜索索引中删除条目，需要持有写锁
+     */
+    private List<TodoItem> removeAll(Collection<UUID> ids) {
+        List<TodoItem> removed = new ArrayList<>();
+        List<UUID> removedIds = new ArrayList<>();
+        for (UUID id : ids) {
+            TodoItem item = todoItems.remove(id);
+            if (item == null) continue;
+            removeFromSortedViews(item);
+            removed.add(item);
+            removedIds.add(id);
+        }
+        if (!removed.isEmpty()) {
+            searchIndex.removeAll(removedIds);
+            version++;
+            publish(true);
+        }
+        return removed;
+    }
+
+    /**
+     * 批量删除后在锁外记录修改、更新归档和提醒
+     */
+    private void afterRemoveAll(List<TodoItem> removed) {
+        List<TodoOperation> operations = new ArrayList<>(removed.size());
+        for (TodoItem item : removed) {
+            if (item.isCompleted()) {
+                TodoArchive.getInstance().noteLeavingArchive(item);
+            }
+            operations.add(TodoOperation.removeTodo(item.getId()));
+            TodoReminders.getInstance().cancel(item.getId());
+        }
+        TodoSaveScheduler.getInstance().recordAll(operations); // 自动保存
+    }
+
+    /**
+     * 批量给待办事项加上 added 中的标签、去掉 removed 中的标签，只发布一次快照
+     * 标签不影响排序，排序视图不需要更新；返回标签有变化的条目数量
+     */
+    public int updateTags(Collection<UUID> ids, Collection<Tag> added, Collection<Tag> removed) {
+        List<TodoItem> changed = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            if (queueWhileLoading(() -> updateTags(ids, added, removed))) return 0;
+            for (UUID id : ids) {
+                TodoItem item = todoItems.get(id);
+                if (item == null) continue;
+                int before = item.getVersion();
+                for (Tag tag : removed) {
+                    item.removeTag(tag);
+                }
+                for (Tag tag : added) {
+                    item.addTag(tag);
+                }
+                if (item.getVersion() != before) {
+                    searchIndex.updateTags(item);
+                    changed.add(item);
+                }
+            }
+            if (!changed.isEmpty()) {
+                publish(false);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        List<TodoOperation> operations = new ArrayList<>(changed.size());
+        for (TodoItem item : changed) {
+            operations.add(TodoOperation.putTodo(item));
         }
+        TodoSaveScheduler.getInstance().recordAll(operations); // 自动保存
+        return changed.size();
     }
 
     // 新增：根据标签筛选待办事项
     public List<TodoItem> getFilteredTodoItems(List<Tag> filterTags, String searchText) {
-        return todoItems.stream()
-                .filter(item -> {
-                    // 如果有标签筛选，检查是否包含任一筛选标签
-                    if (filterTags != null && !filterTags.isEmpty()) {
-                        boolean hasAnyTag = false;
-                        for (Tag filterTag : filterTags) {
-                            if (item.hasTag(filterTag)) {
-                                hasAnyTag = true;
-                                break;
-                            }
-                        }
-                        if (!hasAnyTag) return false;
-                    }
+        return queryTodoItems(TodoQuery.parse(searchText), filterTags, Integer.MAX_VALUE);
+    }
 
-                    // 如果有搜索文本，检查标题或描述是否包含搜索文本
-                    if (searchText != null && !searchText.trim().isEmpty()) {
-                        String search = searchText.toLowerCase().trim();
-                        return item.getTitle().toLowerCase().contains(search) ||
-                               item.getDescription().toLowerCase().contains(search);
-                    }
+    /**
+     * 执行搜索框中的查询，filterTags 不为空时还要求带有其中任一标签
+     * 按显示顺序返回最多 limit 个结果，凑够后不再检查后面的条目
+     */
+    public List<TodoItem> queryTodoItems(TodoQuery query, List<Tag> filterTags, int limit) {
+        if (query.isEmpty() && (filterTags == null || filterTags.isEmpty())) {
+            List<TodoItem> items = getAllTodoItems();
+            if (limit >= items.size()) return items;
+        }
+        return StampedReads.read(lock, () -> query.execute(searchIndex, filterTags, limit));
+    }
+
+    /**
+     * 与 {@link #queryTodoItems(TodoQuery, List, int)} 相同，但按 sort 排序
+     * 第一次使用某种排序时建立排序视图，之后不需要再排序整个清单
+     */
+    public List<TodoItem> queryTodoItems(TodoQuery query, List<Tag> filterTags, TodoSort sort, int limit) {
+        if (sort == TodoSort.ADDED) {
+            return queryTodoItems(query, filterTags, limit);
+        }
+        OrderStatisticTree view = sortedView(sort);
+        return StampedReads.read(lock, () -> query.execute(searchIndex, filterTags, view, limit));
+    }
+
+    /**
+     * 分页查询：按 sort 排序后跳过 offset 个匹配的条目，返回之后最多 limit 个条目和匹配总数
+     * 只取出这一页，耗时与页的大小和索引条件有关，不会复制或排序整个清单
+     * 同一个查询（同一个 TodoQuery 对象或解析结果相同的文本）在清单未修改时复用之前的结果，
+     * 滚动时不会重新计算筛选条件
+     */
+    public TodoPage queryPage(TodoQuery query, List<Tag> filterTags, TodoSort sort, int offset, int limit) {
+        if (sort == TodoSort.ADDED && query.isEmpty() && (filterTags == null || filterTags.isEmpty())) {
+            // 快照本身就是按显示顺序排列的不可修改列表，直接截取
+            List<TodoItem> items = getAllTodoItems();
+            int from = Math.min(Math.max(0, offset), items.size());
+            int to = (int) Math.min((long) from + Math.max(0, limit), items.size());
+            return new TodoPage(items.subList(from, to), Math.max(0, offset), items.size(), true);
+        }
 
-                    return true;
-                })
-                .collect(Collectors.toList());
+        OrderStatisticTree view = sort == TodoSort.ADDED ? null : sortedView(sort);
+        TodoQueryCache.Key key = TodoQueryCache.key(query, filterTags, sort);
+        // 先读取名称版本，建立游标期间标签改名时缓存的游标会在下次使用时作废
+        long namesVersion = TagManager.getInstance().getNamesVersion();
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long version = publishedVersion;
+            TodoQuery.Cursor cursor = queryCache.get(key, version, namesVersion);
+            if (cursor == null) {
+                // 比之前的查询更严格时（例如继续输入），只在之前的结果范围内计算
+                TodoQuery.Narrowing narrowing = queryCache.narrowing(key, query, version, namesVersion);
+                cursor = StampedReads.read(lock, () -> publishedVersion == version ?
+                        query.cursor(searchIndex, filterTags, view, version, narrowing) :
+                        query.cursor(searchIndex, filterTags, view, publishedVersion, null));
+                queryCache.put(key, query, cursor, namesVersion);
+            }
+            TodoPage page = readPage(cursor, offset, limit);
+            if (page != null) return page;
+            // 期间清单被修改，游标已过期
+            queryCache.remove(key);
+        }
+        // 清单一直在修改，不使用缓存
+        return StampedReads.read(lock, () -> query.page(searchIndex, filterTags, view, offset, limit));
+    }
+
+    /**
+     * 从游标取出一页，需要时先继续检查；游标不是当前版本时返回 null
+     * 检查过程不修改游标，确认读取有效后才写入，同一个游标的写入互斥
+     */
+    private TodoPage readPage(TodoQuery.Cursor cursor, int offset, int limit) {
+        synchronized (cursor) {
+            if (!cursor.covers(offset, limit)) {
+                TodoQuery.Cursor.Extension extension = StampedReads.read(lock, () ->
+                        cursor.getVersion() == publishedVersion ? cursor.extend((int) Math.min(Integer.MAX_VALUE, (long) Math.max(0, offset) + Math.max(0, limit))) : null);
+                if (extension == null) return null;
+                cursor.commit(extension);
+            }
+            return StampedReads.read(lock, () -> cursor.getVersion() == publishedVersion ? cursor.page(offset, limit) : null);
+        }
+    }
+
+    /**
+     * 按 sort 排序后的第 index 个条目（从 0 开始），超出范围时返回 null
+     */
+    public TodoItem getSortedItem(TodoSort sort, int index) {
+        OrderStatisticTree view = sortedView(sort);
+        return StampedReads.read(lock, () -> index >= 0 && index < view.size() ? view.get(index) : null);
+    }
+
+    /**
+     * 条目按 sort 排序后的位置（从 0 开始），不在清单中时返回 -1
+     */
+    public int getSortedIndex(TodoSort sort, UUID id) {
+        OrderStatisticTree view = sortedView(sort);
+        return StampedReads.read(lock, () -> {
+            TodoItem item = todoItems.get(id);
+            return item != null ? view.rank(item) : -1;
+        });
+    }
+
+    private OrderStatisticTree sortedView(TodoSort sort) {
+        OrderStatisticTree view = StampedReads.read(lock, () -> sortedViews.get(sort));
+        if (view != null) return view;
+
+        long stamp = lock.writeLock();
+        try {
+            return sortedViews.computeIfAbsent(sort, key -> {
+                OrderStatisticTree created = new OrderStatisticTree(key.comparator());
+                created.rebuild(todoItems.values());
+                return created;
+            });
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     // 新增：根据单个标签筛选待办事项
     public List<TodoItem> getTodoItemsByTag(Tag tag) {
-        return todoItems.stream()
-                .filter(item -> item.hasTag(tag))
-                .collect(Collectors.toList());
+        return StampedReads.read(lock, () -> searchIndex.items(tag.getItems()));
+    }
+
+    /**
+     * 根据多个标签筛选待办事项，matchAll 为 true 时要求带有全部标签，否则带有任一标签即可
+     */
+    public List<TodoItem> getTodoItemsByTags(Collection<Tag> tags, boolean matchAll) {
+        if (tags.isEmpty()) {
+            return matchAll ? getAllTodoItems() : new ArrayList<>();
+        }
+        return StampedReads.read(lock, () -> searchIndex.items(taggedWith(tags, matchAll)));
+    }
+
+    private BitSet taggedWith(Collection<Tag> tags, boolean matchAll) {
+        BitSet result = null;
+        for (Tag tag : tags) {
+            if (result == null) {
+                result = (BitSet) tag.getItems().clone();
+            } else if (matchAll) {
+                result.and(tag.getItems());
+            } else {
+                result.or(tag.getItems());
+            }
+        }
+        return result;
     }
 
     // 新增：搜索待办事项
@@ -134,13 +807,7 @@ public class TodoListManager {
             return getAllTodoItems();
         }
 
-        String search = searchText.toLowerCase().trim();
-        return todoItems.stream()
-                .filter(item ->
-                    item.getTitle().toLowerCase().contains(search) ||
-                    item.getDescription().toLowerCase().contains(search) ||
-                    item.getTags().stream().anyMatch(tag -> tag.getName().toLowerCase().contains(search))
-                )
-                .collect(Collectors.toList());
+        String search = Utils.fold(searchText).trim();
+        return StampedReads.read(lock, () -> searchIndex.search(search, true));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.euphony.todo_list.todo;
+
+import java.util.List;
+
+/**
+ * 分页查询的结果：从 offset 开始的一页条目，以及匹配的条目总数
+ * 有需要逐条检查的条件时，凑够一页后只再检查有限数量的条目，剩余部分按比例估计，此时 exact 为 false
+ */
+public record TodoPage(List<TodoItem> items, int offset, int total, boolean exact) {
+    static TodoPage empty(int offset) {
+        return new TodoPage(List.of(), offset, 0, true);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,1182 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.utils.Utils;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 搜索框中输入的查询，例如 {@code #mining -#done due<3d "iron farm"}
+ *
+ * 语法：
+ *   空格分隔的条件同时满足，OR（或 |）表示任一满足，-、! 或 NOT 表示取反，可以用括号分组
+ *   #标签        带有该标签（名称不区分大小写，含空格时写成 #"iron farm"）
+ *   is:done      已完成；is:open 未完成
+ *   due<3d       截止时间在3天之内（包括已过期）；单位 h、d、w、m（月）
+ *   created<7d   创建不到7天；created>1m 创建超过一个月
+ *   due<2025-08-01、created>=2025-01-01  与具体日期比较，= 表示当天
+ *   "iron farm"  标题或描述包含这段文字
+ * 只有语法完整时才按语法解析，否则整段按文字搜索，与原来的搜索行为一致：
+ *   不含任何条件（只有普通词、括号、引号或 AND）的输入，例如 {@code call mom (urgent)}
+ *   括号或引号不成对、OR 缺少一侧、NOT 后面没有条件，例如 {@code a OR}、{@code "iron farm}
+ *   # 后面不是已有标签的名称，例如 {@code #1 priority}；- 或 ! 后面是数字，例如 {@code -5 degrees}
+ *
+ * 执行时先计算有索引支持且估计结果最少的条件（文字片段、标签位图、完成状态和时间列），
+ * 再按显示顺序逐条检查其余条件，凑够需要的数量就停止
+ */
+public final class TodoQuery {
+    private static final Pattern DATE_TERM = Pattern.compile("(?i)(due|created)(<=|>=|<|>|=|:)(.+)");
+    private static final Pattern RELATIVE = Pattern.compile("(?i)(\\d+)([hdwm])");
+    // 候选数量乘以这个系数仍小于清单大小时，直接对候选排序，否则按排序树顺序遍历
+    private static final int SORT_CANDIDATES_FACTOR = 16;
+    // 分页查询凑够一页后，为统计总数最多再检查的条目数量，超过后按比例估计
+    private static final int COUNT_BUDGET = 4096;
+
+    private final Node root; // null 表示匹配所有条目
+    private final LocalDateTime now;
+    private String key;
+
+    private TodoQuery(Node root, LocalDateTime now) {
+        this.root = root;
+        this.now = now;
+    }
+
+    /**
+     * 解析查询文本，不会抛出异常；没有使用语法或语法不完整时整段按文字搜索
+     * 结果与标签名称有关，标签增删或改名后应重新解析（见 {@link TagManager#getNamesVersion()}）
+     */
+    public static TodoQuery parse(String text) {
+        LocalDateTime now = LocalDateTime.now();
+        if (text == null || text.trim().isEmpty()) {
+            return new TodoQuery(null, now);
+        }
+
+        List<Token> tokens = tokenize(text);
+        Node root = null;
+        boolean structured = false;
+        if (tokens != null) {
+            Parser parser = new Parser(tokens, now);
+            root = parser.parseAll();
+            structured = parser.structured && parser.valid;
+        }
+        if (!structured) {
+            // 整段作为一个关键字
+            root = new TextNode(Utils.fold(text).trim());
+        }
+        return new TodoQuery(root, now);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * 按显示顺序返回最多 limit 个匹配的条目，anyTags 不为空时还要求带有其中任一标签
+     */
+    List<TodoItem> execute(TodoSearchIndex index, Collection<Tag> anyTags, int limit) {
+        return execute(index, anyTags, null, limit);
+    }
+
+    /**
+     * 按 order 的顺序返回最多 limit 个匹配的条目，order 为 null 时按显示顺序
+     */
+    List<TodoItem> execute(TodoSearchIndex index, Collection<Tag> anyTags, OrderStatisticTree order, int limit) {
+        Context context = new Context(index, now);
+        List<Node> predicates = new ArrayList<>();
+        BitSet candidates = plan(context, terms(anyTags), predicates, null);
+
+        List<TodoItem> results = new ArrayList<>(Math.min(limit, candidates != null ? candidates.cardinality() : index.size()));
+        if (candidates != null && candidates.isEmpty()) return results;
+
+        if (order != null && limit > 0) {
+            if (candidates != null && (long) candidates.cardinality() * SORT_CANDIDATES_FACTOR < order.size()) {
+                // 候选很少，逐个检查后排序
+                for (int number = candidates.nextSetBit(0); number >= 0 && number < index.capacity(); number = candidates.nextSetBit(number + 1)) {
+                    TodoItem item = index.item(number);
+                    if (item != null && testAll(context, predicates, item)) {
+                        results.add(item);
+                    }
+                }
+                results.sort(order.comparator());
+                return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+            }
+            order.forEach(0, item -> {
+                if ((candidates == null || candidates.get(item.getNumber())) && testAll(context, predicates, item)) {
+                    results.add(item);
+                }
+                return results.size() < limit;
+            });
+            return results;
+        }
+
+        int number = candidates != null ? candidates.nextSetBit(0) : 0;
+        while (number >= 0 && number < index.capacity() && results.size() < limit) {
+            TodoItem item = index.item(number);
+            if (item != null && testAll(context, predicates, item)) {
+                results.add(item);
+            }
+            number = candidates != null ? candidates.nextSetBit(number + 1) : number + 1;
+        }
+        return results;
+    }
+
+    /**
+     * 按 order 的顺序（为 null 时按显示顺序）跳过 offset 个匹配的条目，返回之后最多 limit 个条目和匹配总数
+     * 只取出需要的一页，不会生成完整的结果列表
+     */
+    TodoPage page(TodoSearchIndex index, Collection<Tag> anyTags, OrderStatisticTree order, int offset, int limit) {
+        offset = Math.max(0, offset);
+        limit = Math.max(0, limit);
+        Cursor cursor = cursor(index, anyTags, order, 0, null);
+        if (!cursor.covers(offset, limit)) {
+            cursor.commit(cursor.extend(offset + limit));
+        }
+        return cursor.page(offset, limit);
+    }
+
+    /**
+     * 为分页查询建立可以继续执行的游标，version 是当前清单的版本
+     * narrowing 不为 null 时只在之前一个更宽的查询的结果范围内计算，见 {@link Cursor#narrowing()}
+     */
+    Cursor cursor(TodoSearchIndex index, Collection<Tag> anyTags, OrderStatisticTree order, long version, Narrowing narrowing) {
+        Context context = new Context(index, now);
+        List<Node> terms = terms(anyTags);
+        List<Node> predicates = new ArrayList<>();
+        BitSet candidates = plan(context, terms, predicates, narrowing);
+        Cursor cursor = new Cursor(context, terms, predicates, candidates, order, version);
+        if (cursor.direct) return cursor;
+
+        if (candidates != null && candidates.isEmpty()) {
+            cursor.complete = true;
+        } else if (order != null && (long) cursor.candidateCount * SORT_CANDIDATES_FACTOR < index.size()) {
+            // 候选很少，全部检查后排序，总数是准确的
+            for (int number = candidates.nextSetBit(0); number >= 0 && number < index.capacity(); number = candidates.nextSetBit(number + 1)) {
+                TodoItem item = index.item(number);
+                if (item != null && testAll(context, predicates, item)) {
+                    cursor.found.add(item);
+                }
+            }
+            cursor.found.sort(order.comparator());
+            cursor.complete = true;
+        }
+        return cursor;
+    }
+
+    /**
+     * 规范化的查询条件，解析结果相同的输入（例如只有空格、大小写或并列条件的顺序不同）得到相同的值
+     * 相对时间已换算成解析时的具体时间，同一次解析的结果才会相等
+     */
+    String key() {
+        if (key == null) {
+            key = root != null ? key(root) : "";
+        }
+        return key;
+    }
+
+    /**
+     * 第 k 个（从 0 开始）被设置的位，不存在时返回 -1
+     */
+    private static int select(BitSet bits, int k) {
+        long[] words = bits.toLongArray();
+        for (int i = 0; i < words.length; i++) {
+            int count = Long.bitCount(words[i]);
+            if (k < count) {
+                long word = words[i];
+                for (int j = 0; j < k; j++) {
+                    word &= word - 1;
+                }
+                return i * 64 + Long.numberOfTrailingZeros(word);
+            }
+            k -= count;
+        }
+        return -1;
+    }
+
+    /**
+     * 本查询的结果是否一定包含在 previous 的结果中（标签筛选相同时），例如在关键字后面继续输入或追加条件
+     * 要求 previous 的每个并列条件都被本查询的某个并列条件蕴含；在中间修改过的查询通常不满足
+     */
+    boolean refines(TodoQuery previous) {
+        // 空查询没有缩小范围
+        if (root == null || previous.root == null) return false;
+        List<Node> terms = terms(root);
+        for (Node previousTerm : terms(previous.root)) {
+            boolean implied = false;
+            for (Node term : terms) {
+                if (term.implies(previousTerm)) {
+                    implied = true;
+                    break;
+                }
+            }
+            if (!implied) return false;
+        }
+        return true;
+    }
+
+    private static List<Node> terms(Node node) {
+        if (node instanceof AndNode and) return and.children;
+        return node != null ? List.of(node) : List.of();
+    }
+
+    /**
+     * 把查询条件和标签筛选拆成并列的条件
+     */
+    private List<Node> terms(Collection<Tag> anyTags) {
+        List<Node> terms = new ArrayList<>(terms(root));
+        if (anyTags != null && !anyTags.isEmpty()) {
+            List<Node> tagNodes = new ArrayList<>(anyTags.size());
+            for (Tag tag : anyTags) {
+                tagNodes.add(new TagNode(tag));
+            }
+            terms.add(tagNodes.size() == 1 ? tagNodes.get(0) : new OrNode(tagNodes));
+        }
+        return terms;
+    }
+
+    /**
+     * 计算并列条件中有索引支持的部分，其余条件放入 predicates
+     * narrowing 不为 null 时从之前的结果范围开始缩小：范围内已经满足的条件不再计算，
+     * 在之前的关键字后继续输入的关键字直接检查范围内的条目，不再查找片段索引
+     */
+    private static BitSet plan(Context context, List<Node> terms, List<Node> predicates, Narrowing narrowing) {
+        if (narrowing == null) {
+            return narrow(context, terms, null, predicates);
+        }
+
+        List<Node> remaining = new ArrayList<>(terms.size());
+        for (Node term : terms) {
+            Node satisfied = null;
+            for (Node previous : narrowing.satisfied) {
+                if (term.implies(previous)) {
+                    satisfied = previous;
+                    break;
+                }
+            }
+            if (satisfied == null) {
+                remaining.add(term);
+            } else if (!key(term).equals(key(satisfied))) {
+                remaining.add(new WithinNode(term));
+            }
+        }
+        return narrow(context, remaining, narrowing.within, predicates);
+    }
+
+    /**
+     * 按估计结果从少到多依次计算有索引支持的条件，得到候选编号；其余条件放入 predicates
+     * 没有可用索引时返回 within
+     */
+    private static BitSet narrow(Context context, List<Node> terms, BitSet within, List<Node> predicates) {
+        List<Node> indexed = new ArrayList<>();
+        for (Node term : terms) {
+            if (term.indexed()) {
+                indexed.add(term);
+            } else {
+                predicates.add(term);
+            }
+        }
+        indexed.sort(Comparator.comparingInt(term -> term.estimate(context)));
+
+        BitSet candidates = within;
+        for (Node term : indexed) {
+            candidates = term.bits(context, candidates);
+            if (candidates.isEmpty()) break;
+        }
+        return candidates;
+    }
+
+    private static String key(Node node) {
+        StringBuilder builder = new StringBuilder();
+        node.appendKey(builder);
+        return builder.toString();
+    }
+
+    /**
+     * 写入带长度前缀的文字，文字中的任何字符都不会与其他条件混淆
+     */
+    private static void appendString(StringBuilder builder, String text) {
+        builder.append(text.length()).append(':').append(text);
+    }
+
+    /**
+     * 并列条件的顺序不影响结果，排序后写入
+     */
+    private static void appendChildren(StringBuilder builder, List<Node> children) {
+        List<String> keys = new ArrayList<>(children.size());
+        for (Node child : children) {
+            keys.add(key(child));
+        }
+        Collections.sort(keys);
+        builder.append('(');
+        for (String key : keys) {
+            builder.append(key.length()).append(':').append(key);
+        }
+        builder.append(')');
+    }
+
+    private static boolean testAll(Context context, List<Node> predicates, TodoItem item) {
+        for (Node predicate : predicates) {
+            if (!predicate.test(context, item)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 拆分成词和运算符，引号不成对时返回 null
+     */
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == '|') {
+                tokens.add(new Token(c == '(' ? TokenType.OPEN : c == ')' ? TokenType.CLOSE : TokenType.OR, null));
+                i++;
+            } else if ((c == '-' || c == '!') && i + 1 < text.length() && !Character.isWhitespace(text.charAt(i + 1))
+                    && !Character.isDigit(text.charAt(i + 1))) {
+                // 后面紧跟数字时是普通文字，例如 -5
+                tokens.add(new Token(TokenType.NOT, null));
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) return null;
+                tokens.add(new Token(TokenType.PHRASE, text.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                // 普通词，值部分可以用引号包含空格，例如 #"iron farm"
+                StringBuilder term = new StringBuilder();
+                while (i < text.length()) {
+                    c = text.charAt(i);
+                    if (Character.isWhitespace(c) || c == '(' || c == ')') break;
+                    if (c == '"') {
+                        int end = text.indexOf('"', i + 1);
+                        if (end < 0) return null;
+                        term.append(text, i + 1, end);
+                        i = end + 1;
+                    } else {
+                        term.append(c);
+                        i++;
+                    }
+                }
+
+                String word = term.toString();
+                switch (word) {
+                    case "OR" -> tokens.add(new Token(TokenType.OR, null));
+                    case "AND" -> tokens.add(new Token(TokenType.AND, null));
+                    case "NOT" -> tokens.add(new Token(TokenType.NOT, null));
+                    default -> tokens.add(new Token(TokenType.TERM, word));
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private enum TokenType { TERM, PHRASE, OPEN, CLOSE, OR, AND, NOT }
+
+    /**
+     * 分页查询的执行状态：候选编号、需要逐条检查的条件，以及按顺序已经找到的匹配条目
+     * 翻到后面的页时从上次停下的位置继续检查，已经找到的条目不再重新计算；只对建立时的清单版本有效
+     * 检查（extend）不修改游标，结果由调用方在确认读取有效后通过 commit 写入
+     * 全部条件都有索引时不需要逐条检查，每页按候选位图或排序树直接定位，page 会读取索引
+     */
+    static final class Cursor {
+        private final Context context;
+        private final List<Node> terms;
+        private final List<Node> predicates;
+        private final BitSet candidates; // null 表示所有条目
+        private final int candidateCount;
+        private final OrderStatisticTree order; // null 表示按显示顺序
+        private final long version;
+        private final boolean direct;
+        private final List<TodoItem> found = new ArrayList<>();
+        // 找到的条目在建立游标时的编号；之后条目可能被删除或重新编号，不能再从条目对象读取
+        private final BitSet foundNumbers = new BitSet();
+        private int position; // 按显示顺序时是下一个要检查的编号，否则是排序树中的位置
+        private boolean complete;
+        private int estimate = -1;
+
+        private Cursor(Context context, List<Node> terms, List<Node> predicates, BitSet candidates, OrderStatisticTree order, long version) {
+            this.context = context;
+            this.terms = terms;
+            this.predicates = predicates;
+            this.candidates = candidates;
+            this.candidateCount = candidates != null ? candidates.cardinality() : context.index.size();
+            this.order = order;
+            this.version = version;
+            this.direct = predicates.isEmpty() && (order == null || candidates == null);
+        }
+
+        long getVersion() {
+            return version;
+        }
+
+        /**
+         * 包含全部结果的编号范围，以及范围内所有条目都满足的条件，用于计算更严格的查询
+         * 已全部找到时范围就是结果本身，否则是候选编号，只保证有索引支持的条件；没有候选范围时返回 null
+         */
+        synchronized Narrowing narrowing() {
+            if (candidates == null) return null;
+            if (direct) return new Narrowing(candidates, terms);
+            if (complete) {
+                // 已全部找到后不会再写入，可以直接共用
+                return new Narrowing(foundNumbers, terms);
+            }
+            List<Node> satisfied = new ArrayList<>(terms);
+            satisfied.removeAll(predicates);
+            return new Narrowing(candidates, satisfied);
+        }
+
+        /**
+         * 已经找到的条目是否足够返回这一页
+         */
+        boolean covers(int offset, int limit) {
+            return direct || complete || found.size() >= (long) Math.max(0, offset) + Math.max(0, limit);
+        }
+
+        /**
+         * 从上次停下的位置继续检查，直到共找到 needed 个匹配的条目
+         * 有逐条检查的条件时，之后最多再检查 COUNT_BUDGET 个候选，用于统计总数和后面几页
+         */
+        Extension extend(int needed) {
+            Extension extension = new Extension(needed);
+            TodoSearchIndex index = context.index;
+            if (order == null) {
+                BitSet numbers = candidates != null ? candidates : index.live();
+                for (int number = numbers.nextSetBit(position); number >= 0 && number < index.capacity(); number = numbers.nextSetBit(number + 1)) {
+                    extension.position = number + 1;
+                    TodoItem item = index.item(number);
+                    if (item != null && !extension.test(item)) break;
+                }
+            } else if (position < order.size()) {
+                order.forEach(position, item -> {
+                    extension.position++;
+                    return candidates != null && !candidates.get(item.getNumber()) || extension.test(item);
+                });
+            }
+            if (!extension.complete && estimate < 0) {
+                extension.estimate = sampleEstimate();
+            }
+            return extension;
+        }
+
+        void commit(Extension extension) {
+            found.addAll(extension.added);
+            foundNumbers.or(extension.addedNumbers);
+            position = extension.position;
+            complete = extension.complete;
+            if (extension.estimate >= 0) estimate = extension.estimate;
+        }
+
+        TodoPage page(int offset, int limit) {
+            offset = Math.max(0, offset);
+            if (direct) return directPage(offset, Math.max(0, limit));
+            int from = Math.min(offset, found.size());
+            int to = (int) Math.min((long) from + Math.max(0, limit), found.size());
+            List<TodoItem> items = new ArrayList<>(found.subList(from, to));
+            if (complete) {
+                return new TodoPage(items, offset, found.size(), true);
+            }
+            if (predicates.isEmpty()) {
+                // 没有逐条检查的条件时，剩余的候选都匹配
+                return new TodoPage(items, offset, candidateCount, true);
+            }
+            return new TodoPage(items, offset, Math.max(estimate, found.size()), false);
+        }
+
+        /**
+         * 总数就是候选数量，直接定位到第 offset 个
+         */
+        private TodoPage directPage(int offset, int limit) {
+            TodoSearchIndex index = context.index;
+            BitSet numbers = candidates != null ? candidates : index.live();
+            List<TodoItem> items = new ArrayList<>(Math.max(0, Math.min(limit, candidateCount - offset)));
+            if (offset < candidateCount && limit > 0) {
+                if (order == null) {
+                    for (int number = select(numbers, offset); number >= 0 && items.size() < limit; number = numbers.nextSetBit(number + 1)) {
+                        TodoItem item = index.item(number);
+                        if (item != null) items.add(item);
+                    }
+                } else {
+                    order.forEach(offset, item -> {
+                        items.add(item);
+                        return items.size() < limit;
+                    });
+                }
+            }
+            return new TodoPage(items, offset, candidateCount, true);
+        }
+
+        /**
+         * 已检查的部分与排序有关（例如未完成优先时先检查的都是未完成的），不能代表剩余部分，
+         * 改为在全部编号上等距抽样估计匹配数量
+         */
+        private int sampleEstimate() {
+            TodoSearchIndex index = context.index;
+            BitSet numbers = candidates != null ? candidates : index.live();
+            int sampled = 0;
+            int sampledMatches = 0;
+            for (int i = 0; i < COUNT_BUDGET; i++) {
+                int number = (int) ((long) i * index.capacity() / COUNT_BUDGET);
+                TodoItem item = numbers.get(number) ? index.item(number) : null;
+                if (item == null) continue;
+                sampled++;
+                if (testAll(context, predicates, item)) sampledMatches++;
+            }
+            return sampled > 0 ? (int) ((long) candidateCount * sampledMatches / sampled) : 0;
+        }
+
+        /**
+         * 一次继续检查的结果
+         */
+        final class Extension {
+            private final List<TodoItem> added = new ArrayList<>();
+            private final BitSet addedNumbers = new BitSet();
+            private final int needed;
+            private int position = Cursor.this.position;
+            private int extra;
+            private boolean complete = true;
+            private int estimate = -1;
+
+            private Extension(int needed) {
+                this.needed = needed;
+            }
+
+            /**
+             * 检查一个候选条目，返回 false 表示不需要再继续
+             */
+            private boolean test(TodoItem item) {
+                if (testAll(context, predicates, item)) {
+                    added.add(item);
+                    addedNumbers.set(item.getNumber());
+                }
+                if ((long) found.size() + added.size() >= needed) {
+                    // 没有逐条检查的条件时总数就是候选数量，凑够即可停止
+                    if (predicates.isEmpty() || ++extra > COUNT_BUDGET) {
+                        complete = false;
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 之前的查询得到的结果范围和范围内已经满足的条件
+     * 位图不能修改
+     */
+    static final class Narrowing {
+        private final BitSet within;
+        private final List<Node> satisfied;
+
+        private Narrowing(BitSet within, List<Node> satisfied) {
+            this.within = within;
+            this.satisfied = satisfied;
+        }
+
+        int size() {
+            return within.cardinality();
+        }
+    }
+
+    private record Token(TokenType type, String text) {
+    }
+
+    /**
+     * 递归下降解析：OR 的优先级低于相邻条件之间隐含的 AND
+     */
+    private static final class Parser {
+        private final List<Token> tokens;
+        private final LocalDateTime now;
+        private int position = 0;
+        boolean structured = false; // 是否用到了条件（标签、状态、日期、OR 或取反），只有括号、引号和 AND 不算
+        boolean valid = true; // 括号成对，OR、AND 两侧和 NOT 后面都有条件
+
+        Parser(List<Token> tokens, LocalDateTime now) {
+            this.tokens = tokens;
+            this.now = now;
+        }
+
+        Node parseAll() {
+            List<Node> parts = new ArrayList<>();
+            while (position < tokens.size()) {
+                Node node = parseOr();
+                if (node != null) parts.add(node);
+                // 多余的右括号
+                if (peek() == TokenType.CLOSE) {
+                    position++;
+                    valid = false;
+                }
+            }
+            return combine(parts, true);
+        }
+
+        private Node parseOr() {
+            List<Node> parts = new ArrayList<>();
+            Node first = parseAnd();
+            if (first != null) parts.add(first);
+            while (peek() == TokenType.OR) {
+                position++;
+                structured = true;
+                Node next = parseAnd();
+                if (next != null) {
+                    parts.add(next);
+                } else {
+                    valid = false;
+                }
+            }
+            if (first == null && !parts.isEmpty()) {
+                valid = false;
+            }
+            return combine(parts, false);
+        }
+
+        private Node parseAnd() {
+            List<Node> parts = new ArrayList<>();
+            while (peek() != null && peek() != TokenType.OR && peek() != TokenType.CLOSE) {
+                if (peek() == TokenType.AND) {
+                    position++;
+                    // AND 只能连接两个条件
+                    TokenType next = peek();
+                    if (parts.isEmpty() || next == null || next == TokenType.OR || next == TokenType.CLOSE || next == TokenType.AND) {
+                        valid = false;
+                    }
+                    continue;
+                }
+                Node node = parseUnary();
+                if (node != null) parts.add(node);
+            }
+            return combine(parts, true);
+        }
+
+        private Node parseUnary() {
+            Token token = tokens.get(position++);
+            switch (token.type()) {
+                case NOT -> {
+                    structured = true;
+                    if (peek() == null || peek() == TokenType.OR || peek() == TokenType.CLOSE || peek() == TokenType.AND) {
+                        valid = false;
+                        return null;
+                    }
+                    Node node = parseUnary();
+                    return node != null ? new NotNode(node) : null;
+                }
+                case OPEN -> {
+                    Node node = parseOr();
+                    if (peek() == TokenType.CLOSE) {
+                        position++;
+                    } else {
+                        valid = false;
+                    }
+                    if (node == null) valid = false;
+                    return node;
+                }
+                case PHRASE -> {
+                    String phrase = Utils.fold(token.text()).trim();
+                    if (phrase.isEmpty()) valid = false;
+                    return phrase.isEmpty() ? null : new TextNode(phrase);
+                }
+                default -> {
+                    return parseTerm(token.text());
+                }
+            }
+        }
+
+        private Node parseTerm(String term) {
+            String lower = Utils.fold(term);
+            // 只有已有标签的名称才是标签条件，否则按文字处理，例如 #1
+            if (term.length() > 1 && term.charAt(0) == '#' && TagManager.getInstance().findTag(term.substring(1)) != null) {
+                structured = true;
+                return new TagNameNode(term.substring(1));
+            }
+
+            if (lower.startsWith("is:")) {
+                switch (lower.substring(3)) {
+                    case "done", "completed" -> {
+                        structured = true;
+                        return new CompletedNode(true);
+                    }
+                    case "open", "todo", "incomplete" -> {
+                        structured = true;
+                        return new CompletedNode(false);
+                    }
+                    default -> {
+                    }
+                }
+            }
+
+            Matcher matcher = DATE_TERM.matcher(term);
+            if (matcher.matches()) {
+                Node node = parseDate(Utils.fold(matcher.group(1)), matcher.group(2), matcher.group(3));
+                if (node != null) {
+                    structured = true;
+                    return node;
+                }
+            }
+            return new TextNode(lower);
+        }
+
+        /**
+         * 解析日期条件，得到 [from, to) 区间；值无法识别或超出日期范围时返回 null，按文字搜索
+         */
+        private Node parseDate(String field, String operator, String value) {
+            try {
+                return dateNode(field, operator, value);
+            } catch (NumberFormatException | DateTimeException | ArithmeticException e) {
+                // 例如 due<99999999999999999999d 或 due:+999999999-12-31
+                return null;
+            }
+        }
+
+        private Node dateNode(String field, String operator, String value) {
+            boolean created = field.equals("created");
+            LocalDateTime start;
+            LocalDateTime end;
+
+            Matcher relative = RELATIVE.matcher(value);
+            if (relative.matches()) {
+                long amount = Long.parseLong(relative.group(1));
+                LocalDateTime boundary = switch (Character.toLowerCase(relative.group(2).charAt(0))) {
+                    case 'h' -> created ? now.minusHours(amount) : now.plusHours(amount);
+                    case 'w' -> created ? now.minusWeeks(amount) : now.plusWeeks(amount);
+                    case 'm' -> created ? now.minusMonths(amount) : now.plusMonths(amount);
+                    default -> created ? now.minusDays(amount) : now.plusDays(amount);
+                };
+                if (operator.equals("=") || operator.equals(":")) {
+                    start = boundary.toLocalDate().atStartOfDay();
+                    return new DateNode(created, start, start.plusDays(1));
+                }
+                // created 后面的时长表示创建了多久，比较方向与时间相反
+                boolean before = operator.startsWith("<") != created;
+                return before ? new DateNode(created, null, boundary) : new DateNode(created, boundary, null);
+            }
+
+            LocalDate date = value.equalsIgnoreCase("today") ? now.toLocalDate() : LocalDate.parse(value);
+            start = date.atStartOfDay();
+            end = start.plusDays(1);
+            return switch (operator) {
+                case "<" -> new DateNode(created, null, start);
+                case "<=" -> new DateNode(created, null, end);
+                case ">" -> new DateNode(created, end, null);
+                case ">=" -> new DateNode(created, start, null);
+                default -> new DateNode(created, start, end);
+            };
+        }
+
+        private TokenType peek() {
+            return position < tokens.size() ? tokens.get(position).type() : null;
+        }
+
+        private static Node combine(List<Node> parts, boolean and) {
+            if (parts.isEmpty()) return null;
+            if (parts.size() == 1) return parts.get(0);
+            return and ? new AndNode(parts) : new OrNode(parts);
+        }
+    }
+
+    /**
+     * 执行查询时用到的数据
+     */
+    private static final class Context {
+        final TodoSearchIndex index;
+        final LocalDateTime now;
+        // 本次执行中按名称找到的标签
+        private final Map<String, Tag> tagsByName = new HashMap<>();
+
+        Context(TodoSearchIndex index, LocalDateTime now) {
+            this.index = index;
+            this.now = now;
+        }
+
+        Tag findTag(String name) {
+            if (!tagsByName.containsKey(name)) {
+                tagsByName.put(name, TagManager.getInstance().findTag(name));
+            }
+            return tagsByName.get(name);
+        }
+    }
+
+    /**
+     * 查询条件
+     * 有索引支持的条件通过 bits 直接得到结果编号，其余条件对每个候选条目调用 test
+     */
+    private abstract static class Node {
+        abstract boolean test(Context context, TodoItem item);
+
+        /**
+         * 写入规范化的条件，用于 {@link TodoQuery#key()}
+         */
+        abstract void appendKey(StringBuilder builder);
+
+        /**
+         * 满足本条件的条目是否一定满足 other
+         */
+        boolean implies(Node other) {
+            return key(this).equals(key(other));
+        }
+
+        /**
+         * 估计结果数量，越小越先计算
+         */
+        int estimate(Context context) {
+            return context.index.size();
+        }
+
+        boolean indexed() {
+            return false;
+        }
+
+        /**
+         * 满足条件的编号，within 不为 null 时只在其中查找
+         */
+        BitSet bits(Context context, BitSet within) {
+            return scan(context, within);
+        }
+
+        /**
+         * 逐条检查，within 为 null 时检查所有条目
+         */
+        final BitSet scan(Context context, BitSet within) {
+            BitSet result = new BitSet();
+            int number = within != null ? within.nextSetBit(0) : 0;
+            while (number >= 0 && number < context.index.capacity()) {
+                TodoItem item = context.index.item(number);
+                if (item != null && test(context, item)) {
+                    result.set(number);
+                }
+                number = within != null ? within.nextSetBit(number + 1) : number + 1;
+            }
+            return result;
+        }
+    }
+
+    private static final class TextNode extends Node {
+        final String search;
+
+        TextNode(String search) {
+            this.search = search;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            return context.index.matchesText(item.getNumber(), search);
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            appendString(builder.append('t'), search);
+        }
+
+        @Override
+        boolean implies(Node other) {
+            // 包含更长的文字一定包含其中的一段，例如继续输入关键字
+            return other instanceof TextNode text && search.contains(text.search);
+        }
+
+        @Override
+        int estimate(Context context) {
+            return context.index.estimate(search);
+        }
+
+        @Override
+        boolean indexed() {
+            // 一两个字符的关键字没有片段索引，作为逐条检查的条件
+            return search.length() >= 3;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            return context.index.match(search, false, within);
+        }
+    }
+
+    private static class TagNode extends Node {
+        private final Tag tag;
+
+        TagNode(Tag tag) {
+            this.tag = tag;
+        }
+
+        Tag tag(Context context) {
+            return tag;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            Tag tag = tag(context);
+            return tag != null && item.getNumber() >= 0 && tag.getItems().get(item.getNumber());
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            builder.append('g').append(tag.getId());
+        }
+
+        @Override
+        int estimate(Context context) {
+            Tag tag = tag(context);
+            return tag != null ? tag.getItems().cardinality() : 0;
+        }
+
+        @Override
+        boolean indexed() {
+            return true;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            Tag tag = tag(context);
+            if (tag == null) return new BitSet();
+            BitSet result = (BitSet) tag.getItems().clone();
+            if (within != null) result.and(within);
+            return result;
+        }
+    }
+
+    /**
+     * 按名称引用的标签，执行时才查找，查询可以在标签变化后继续使用
+     */
+    private static final class TagNameNode extends TagNode {
+        final String name;
+
+        TagNameNode(String name) {
+            super(null);
+            this.name = name;
+        }
+
+        @Override
+        Tag tag(Context context) {
+            return context.findTag(name);
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            // 标签名称不区分大小写
+            appendString(builder.append('n'), Utils.fold(name));
+        }
+    }
+
+    private static final class CompletedNode extends Node {
+        final boolean completed;
+
+        CompletedNode(boolean completed) {
+            this.completed = completed;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            return item.isCompleted() == completed;
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            builder.append(completed ? "c1" : "c0");
+        }
+
+        @Override
+        int estimate(Context context) {
+            int done = context.index.completedCount();
+            return completed ? done : context.index.size() - done;
+        }
+
+        @Override
+        boolean indexed() {
+            return true;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            return context.index.completed(completed, within);
+        }
+    }
+
+    /**
+     * 截止时间或创建时间落在 [from, to) 之间，null 表示不限
+     */
+    private static final class DateNode extends Node {
+        final boolean created;
+        // UTC 纪元微秒，不限时分别为 Long.MIN_VALUE 和 Long.MAX_VALUE
+        final long from;
+        final long to;
+
+        DateNode(boolean created, LocalDateTime from, LocalDateTime to) {
+            this.created = created;
+            this.from = from != null ? TodoItem.toMicros(from) : Long.MIN_VALUE;
+            this.to = to != null ? TodoItem.toMicros(to) : Long.MAX_VALUE;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            long time = created ? item.getCreatedMicros() : item.getDueMicros();
+            return TodoSearchIndex.inRange(time, from, to);
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            builder.append(created ? "dc" : "dd").append(from).append(',').append(to).append(';');
+        }
+
+        @Override
+        boolean implies(Node other) {
+            return other instanceof DateNode date && date.created == created && date.from <= from && to <= date.to;
+        }
+
+        @Override
+        boolean indexed() {
+            // 没有可用于估计的索引，估计为全部条目，排在其他有索引的条件之后扫描时间列
+            return true;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            return context.index.timeRange(created, from, to, within);
+        }
+    }
+
+    /**
+     * 已知候选范围都满足一个更宽的条件时（例如继续输入的关键字），直接逐条检查范围内的条目
+     * 作为有索引的条件计算，结果仍然是准确的
+     */
+    private static final class WithinNode extends Node {
+        final Node child;
+
+        WithinNode(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            return child.test(context, item);
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            child.appendKey(builder);
+        }
+
+        @Override
+        boolean indexed() {
+            // 估计为全部条目，排在其他有索引的条件之后，在最小的范围内检查
+            return true;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            return scan(context, within);
+        }
+    }
+
+    private static final class NotNode extends Node {
+        final Node child;
+
+        NotNode(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            return !child.test(context, item);
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            builder.append('!');
+            child.appendKey(builder);
+        }
+    }
+
+    private static final class AndNode extends Node {
+        final List<Node> children;
+
+        AndNode(List<Node> children) {
+            this.children = children;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            return testAll(context, children, item);
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            appendChildren(builder.append('&'), children);
+        }
+
+        @Override
+        int estimate(Context context) {
+            int estimate = context.index.size();
+            for (Node child : children) {
+                if (child.indexed()) estimate = Math.min(estimate, child.estimate(context));
+            }
+            return estimate;
+        }
+
+        @Override
+        boolean indexed() {
+            for (Node child : children) {
+                if (child.indexed()) return true;
+            }
+            return false;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            List<Node> predicates = new ArrayList<>();
+            BitSet candidates = narrow(context, children, within, predicates);
+            if (predicates.isEmpty()) return candidates;
+            return new AndNode(predicates).scan(context, candidates);
+        }
+    }
+
+    private static final class OrNode extends Node {
+        final List<Node> children;
+
+        OrNode(List<Node> children) {
+            this.children = children;
+        }
+
+        @Override
+        boolean test(Context context, TodoItem item) {
+            for (Node child : children) {
+                if (child.test(context, item)) return true;
+            }
+            return false;
+        }
+
+        @Override
+        void appendKey(StringBuilder builder) {
+            appendChildren(builder.append('|'), children);
+        }
+
+        @Override
+        int estimate(Context context) {
+            long estimate = 0;
+            for (Node child : children) {
+                estimate += child.estimate(context);
+            }
+            return (int) Math.min(estimate, context.index.size());
+        }
+
+        @Override
+        boolean indexed() {
+            for (Node child : children) {
+                if (!child.indexed()) return false;
+            }
+            return true;
+        }
+
+        @Override
+        BitSet bits(Context context, BitSet within) {
+            BitSet result = new BitSet();
+            for (Node child : children) {
+                result.or(child.bits(context, within));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.euphony.todo_list.todo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 最近执行过的分页查询，键是规范化的查询条件、标签筛选和排序方式
+ * 滚动或重复刷新时直接从游标中取出已经找到的条目，翻到更后面的页时从上次停下的位置继续
+ * 只保留最近使用的 MAX_ENTRIES 个查询；清单修改时由 TodoListManager 清空，标签名称变化时按版本号作废
+ * 没有缓存的查询如果比缓存中的某个查询更严格（例如在搜索框中继续输入），只在那个查询的结果范围内计算
+ */
+final class TodoQueryCache {
+    private static final int MAX_ENTRIES = 16;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    static Key key(TodoQuery query, Collection<Tag> filterTags, TodoSort sort) {
+        List<UUID> tagIds = new ArrayList<>();
+        if (filterTags != null) {
+            for (Tag tag : filterTags) {
+                tagIds.add(tag.getId());
+            }
+            // 筛选标签之间是“任一”的关系，与选择顺序无关
+            tagIds.sort(null);
+        }
+        return new Key(query.key(), tagIds, sort);
+    }
+
+    /**
+     * 清单版本和标签名称版本都与建立时相同的游标，否则返回 null
+     */
+    synchronized TodoQuery.Cursor get(Key key, long version, long namesVersion) {
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.cursor().getVersion() != version || entry.namesVersion() != namesVersion) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.cursor();
+    }
+
+    /**
+     * 缓存中被 query 细化、且标签筛选相同的查询里最小的结果范围，没有时返回 null
+     * 与排序方式无关
+     */
+    TodoQuery.Narrowing narrowing(Key key, TodoQuery query, long version, long namesVersion) {
+        List<TodoQuery.Cursor> refined = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Key, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (!mapEntry.getKey().tags().equals(key.tags())) continue;
+                if (entry.cursor().getVersion() != version || entry.namesVersion() != namesVersion) continue;
+                if (query.refines(entry.query())) refined.add(entry.cursor());
+            }
+        }
+
+        // 游标的锁在读取清单时持有，不能在持有本对象的锁时获取，否则可能与发布快照时的 clear 互相等待
+        TodoQuery.Narrowing best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (TodoQuery.Cursor cursor : refined) {
+            TodoQuery.Narrowing narrowing = cursor.narrowing();
+            if (narrowing == null) continue;
+            // 范围相同时取最近使用的，通常是上一次输入的查询，满足的条件与本次最接近
+            int size = narrowing.size();
+            if (size <= bestSize) {
+                best = narrowing;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    synchronized void put(Key key, TodoQuery query, TodoQuery.Cursor cursor, long namesVersion) {
+        entries.put(key, new Entry(query, cursor, namesVersion));
+    }
+
+    synchronized void remove(Key key) {
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    record Key(String query, List<UUID> tags, TodoSort sort) {
+    }
+
+    private record Entry(TodoQuery query, TodoQuery.Cursor cursor, long namesVersion) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.config.TodoConfig;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * 截止时间提醒，未完成且设置了截止时间的待办事项按提醒时间排在优先队列中
+ * 每个客户端 tick 只比较一次时间，每秒最多查看一次队首，不会遍历整个清单
+ * 由 TodoListManager 在增删、修改截止时间和切换完成状态后同步，可以在任何线程调用
+ */
+public class TodoReminders {
+    private static final long CHECK_INTERVAL_MILLIS = 1000;
+
+    private PriorityQueue<Entry> queue = new PriorityQueue<>();
+    // 每个条目当前有效的提醒时间；改期或取消后队列中的旧记录不删除，出队时与这里不一致的直接丢弃
+    private final Map<UUID, Long> pending = new HashMap<>();
+    private long nextCheckMillis;
+    // 加载时已经过期的条目数量，进入世界后提示一次
+    private int overdueOnLoad;
+
+    private TodoReminders() {
+    }
+
+    private static final class Holder {
+        static final TodoReminders INSTANCE = new TodoReminders();
+    }
+
+    public static TodoReminders getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * 按加载的清单重新建立提醒，已经过期的只计数，不逐个提醒
+     */
+    public void reset(Collection<TodoItem> items) {
+        boolean enabled = TodoConfig.getInstance().isRemindersEnabled();
+        long leadMicros = leadMicros();
+        long now = TodoItem.toMicros(LocalDateTime.now());
+        List<Entry> entries = new ArrayList<>();
+        int overdue = 0;
+        for (TodoItem item : enabled ? items : List.<TodoItem>of()) {
+            long due = item.getDueMicros();
+            if (item.isCompleted() || due == TodoItem.NO_TIME) continue;
+            if (due <= now) {
+                overdue++;
+            } else {
+                entries.add(new Entry(due - leadMicros, item.getId()));
+            }
+        }
+
+        synchronized (this) {
+            pending.clear();
+            for (Entry entry : entries) {
+                pending.put(entry.id, entry.fireAt);
+            }
+            // 一次性建堆，不逐个插入
+            queue = new PriorityQueue<>(entries);
+            overdueOnLoad = overdue;
+            nextCheckMillis = 0;
+        }
+    }
+
+    /**
+     * 清空所有提醒，切换世界时调用
+     */
+    public synchronized void clear() {
+        queue.clear();
+        pending.clear();
+        overdueOnLoad = 0;
+    }
+
+    /**
+     * 按条目当前的截止时间和完成状态安排提醒，已经到期的条目不再提醒
+     */
+    public void schedule(TodoItem item) {
+        long due = item.getDueMicros();
+        if (item.isCompleted() || due == TodoItem.NO_TIME || !TodoConfig.getInstance().isRemindersEnabled()
+                || due <= TodoItem.toMicros(LocalDateTime.now())) {
+            cancel(item.getId());
+            return;
+        }
+        long fireAt = due - leadMicros();
+        synchronized (this) {
+            Long current = pending.put(item.getId(), fireAt);
+            if (current == null || current != fireAt) {
+                queue.offer(new Entry(fireAt, item.getId()));
+                compactIfNeeded();
+            }
+        }
+    }
+
+    public synchronized void cancel(UUID id) {
+        if (pending.remove(id) != null) {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * 取出提醒时间已到的条目，每个 tick 调用；距上次检查不足一秒时直接返回
+     * 返回前再次确认条目仍在清单中、未完成且有截止时间
+     */
+    public List<TodoItem> pollDue() {
+        long nowMillis = System.currentTimeMillis();
+        List<UUID> fired = null;
+        synchronized (this) {
+            if (nowMillis < nextCheckMillis || queue.isEmpty()) return List.of();
+            nextCheckMillis = nowMillis + CHECK_INTERVAL_MILLIS;
+
+            long now = TodoItem.toMicros(LocalDateTime.now());
+            Entry head;
+            while ((head = queue.peek()) != null && head.fireAt <= now) {
+                queue.poll();
+                Long current = pending.get(head.id);
+                if (current != null && current == head.fireAt) {
+                    pending.remove(head.id);
+                    if (fired == null) fired = new ArrayList<>();
+                    fired.add(head.id);
+                }
+            }
+        }
+        if (fired == null) return List.of();
+
+        List<TodoItem> due = new ArrayList<>(fired.size());
+        for (UUID id : fired) {
+            TodoItem item = TodoListManager.getInstance().getTodoItem(id);
+            if (item != null && !item.isCompleted() && item.getDueMicros() != TodoItem.NO_TIME) {
+                due.add(item);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * 取出加载时已经过期的条目数量，只返回一次
+     */
+    public synchronized int takeOverdueOnLoad() {
+        int overdue = overdueOnLoad;
+        overdueOnLoad = 0;
+        return overdue;
+    }
+
+    /**
+     * 旧记录过多时按当前有效的提醒重新建堆，避免频繁改期后队列无限增长
+     */
+    private void compactIfNeeded() {
+        if (queue.size() <= 2 * pending.size() + 64) return;
+        List<Entry> entries = new ArrayList<>(pending.size());
+        for (Map.Entry<UUID, Long> entry : pending.entrySet()) {
+            entries.add(new Entry(entry.getValue(), entry.getKey()));
+        }
+        queue = new PriorityQueue<>(entries);
+    }
+
+    /**
+     * 提前提醒的时间；截止时间在这段时间内的条目加入时立即提醒
+     */
+    private static long leadMicros() {
+        return TodoConfig.getInstance().getReminderLeadMinutes() * 60_000_000L;
+    }
+
+    private record Entry(long fireAt, UUID id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(fireAt, other.fireAt);
+        }
+    }
+}
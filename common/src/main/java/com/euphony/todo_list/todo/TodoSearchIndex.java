@@ -0,0 +1,511 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.utils.Utils;
+
+import java.util.*;
+
+/**
+ * 待办事项的全文搜索索引，由 TodoListManager 在每次增删改时增量维护
+ * 标题和描述按小写后的三字符片段（trigram）建立倒排表，搜索时先求出包含所有片段的候选条目，
+ * 再用缓存的小写文本确认，结果与逐条 contains 完全一致
+ * 标签名称数量很少，直接匹配标签后取出带有这些标签的条目
+ * 条目按加入顺序分配递增的编号，按编号输出即为列表的显示顺序；
+ * 每个标签的位图（{@link Tag#getItems()}）也使用这些编号
+ * 完成状态、创建时间和截止时间另外按编号存成位图和 long 数组（按列存放），
+ * 按这些条件筛选时顺序扫描数组，不需要逐个访问条目对象
+ */
+final class TodoSearchIndex {
+    // 被删除的编号超过这个数量且多于存活条目时重新编号
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<UUID, Doc> docsById = new HashMap<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    // 清单中出现过的标签，用于按名称搜索
+    private final Map<UUID, TagName> tags = new HashMap<>();
+    private int deleted = 0;
+
+    // 按编号存放的列，已删除的编号不在 live 中，时间为 TodoItem.NO_TIME
+    private final BitSet live = new BitSet();
+    private final BitSet completed = new BitSet();
+    private long[] createdColumn = new long[16];
+    private long[] dueColumn = new long[16];
+
+    /**
+     * 按给定顺序重建整个索引
+     */
+    void rebuild(Collection<TodoItem> items) {
+        clear();
+        for (TodoItem item : items) {
+            add(item);
+        }
+    }
+
+    void clear() {
+        for (Doc doc : docs) {
+            if (doc != null) doc.item.setNumber(-1);
+        }
+        docs.clear();
+        docsById.clear();
+        trigrams.clear();
+        tags.clear();
+        live.clear();
+        completed.clear();
+        deleted = 0;
+    }
+
+    /**
+     * 加入新条目，已存在时按修改处理
+     */
+    void add(TodoItem item) {
+        if (docsById.containsKey(item.getId())) {
+            update(item);
+            return;
+        }
+
+        Doc doc = new Doc(docs.size(), item);
+        docs.add(doc);
+        docsById.put(item.getId(), doc);
+        item.setNumber(doc.number);
+        for (long trigram : doc.trigrams) {
+            trigrams.computeIfAbsent(trigram, key -> new Postings()).add(doc.number);
+        }
+        registerTags(item);
+
+        if (doc.number >= createdColumn.length) {
+            int length = Math.max(doc.number + 1, createdColumn.length * 2);
+            createdColumn = Arrays.copyOf(createdColumn, length);
+            dueColumn = Arrays.copyOf(dueColumn, length);
+        }
+        live.set(doc.number);
+        updateColumns(item);
+    }
+
+    /**
+     * 条目的完成状态或时间修改后调用，只更新按列存放的数据
+     */
+    void updateColumns(TodoItem item) {
+        int number = item.getNumber();
+        if (number < 0 || !live.get(number)) return;
+        completed.set(number, item.isCompleted());
+        createdColumn[number] = item.getCreatedMicros();
+        dueColumn[number] = item.getDueMicros();
+    }
+
+    /**
+     * 条目的标题、描述或标签修改后调用，只更新变化的倒排表
+     */
+    void update(TodoItem item) {
+        Doc doc = docsById.get(item.getId());
+        if (doc == null) {
+            add(item);
+            return;
+        }
+
+        long[] oldTrigrams = doc.trigrams;
+        doc.read(item);
+
+        // 两个有序数组求差集，只改动增加或减少的片段
+        int i = 0;
+        int j = 0;
+        while (i < oldTrigrams.length || j < doc.trigrams.length) {
+            if (j >= doc.trigrams.length || (i < oldTrigrams.length && oldTrigrams[i] < doc.trigrams[j])) {
+                removePosting(oldTrigrams[i++], doc.number);
+            } else if (i >= oldTrigrams.length || doc.trigrams[j] < oldTrigrams[i]) {
+                trigrams.computeIfAbsent(doc.trigrams[j++], key -> new Postings()).add(doc.number);
+            } else {
+                i++;
+                j++;
+            }
+        }
+
+        // 标签位图已由 TodoItem 的标签方法更新
+        registerTags(item);
+        updateColumns(item);
+    }
+
+    /**
+     * 删除条目，只清除按编号存放的数据，时间与条目的片段数量有关，与清单大小无关
+     * 倒排表中保留已删除的编号，搜索确认时会跳过，重新编号时一并清理
+     */
+    void remove(UUID id) {
+        if (release(id)) {
+            compactIfSparse();
+        }
+    }
+
+    /**
+     * 一次删除多个条目，最多重新编号一次
+     */
+    void removeAll(Collection<UUID> ids) {
+        boolean removed = false;
+        for (UUID id : ids) {
+            removed |= release(id);
+        }
+        if (removed) {
+            compactIfSparse();
+        }
+    }
+
+    private boolean release(UUID id) {
+        Doc doc = docsById.remove(id);
+        if (doc == null) return false;
+
+        doc.item.setNumber(-1);
+        docs.set(doc.number, null);
+        live.clear(doc.number);
+        completed.clear(doc.number);
+        deleted++;
+        return true;
+    }
+
+    private void compactIfSparse() {
+        if (deleted > COMPACT_THRESHOLD && deleted > docsById.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * 条目的标签修改后调用，标签位图已由 TodoItem 更新，这里只记录按名称搜索用到的标签
+     */
+    void updateTags(TodoItem item) {
+        if (docsById.containsKey(item.getId())) {
+            registerTags(item);
+        }
+    }
+
+    /**
+     * 搜索标题或描述包含关键字的条目，includeTags 为 true 时也匹配标签名称
+     * 关键字应已转为小写并去除首尾空白
+     */
+    List<TodoItem> search(String search, boolean includeTags) {
+        return items(match(search, includeTags, null));
+    }
+
+    /**
+     * 返回匹配条目的编号，within 不为 null 时只在其中查找（例如标签筛选的结果）
+     */
+    BitSet match(String search, boolean includeTags, BitSet within) {
+        BitSet matches = new BitSet(docs.size());
+        if (search.length() >= 3) {
+            searchTrigrams(search, matches, within);
+        } else if (within != null) {
+            // 一两个字符的关键字没有片段可用，直接检查缓存的小写文本
+            for (int number = within.nextSetBit(0); number >= 0; number = within.nextSetBit(number + 1)) {
+                Doc doc = number < docs.size() ? docs.get(number) : null;
+                if (doc != null && doc.matches(search)) {
+                    matches.set(number);
+                }
+            }
+        } else {
+            for (Doc doc : docs) {
+                if (doc != null && doc.matches(search)) {
+                    matches.set(doc.number);
+                }
+            }
+        }
+
+        if (includeTags) {
+            for (TagName tagName : tags.values()) {
+                BitSet tagged = tagName.tag.getItems();
+                if (!tagged.isEmpty() && tagName.lowerName().contains(search)) {
+                    if (within == null) {
+                        matches.or(tagged);
+                    } else {
+                        BitSet restricted = (BitSet) tagged.clone();
+                        restricted.and(within);
+                        matches.or(restricted);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 按编号顺序（即显示顺序）取出条目
+     */
+    List<TodoItem> items(BitSet numbers) {
+        List<TodoItem> results = new ArrayList<>(numbers.cardinality());
+        for (int number = numbers.nextSetBit(0); number >= 0 && number < docs.size(); number = numbers.nextSetBit(number + 1)) {
+            Doc doc = docs.get(number);
+            if (doc != null) results.add(doc.item);
+        }
+        return results;
+    }
+
+    /**
+     * 估计标题或描述包含关键字的条目数量，用于查询计划选择最先计算的条件
+     * 取关键字各片段中最短的倒排表长度作为上限
+     */
+    int estimate(String search) {
+        if (search.length() < 3) return size();
+
+        int estimate = Integer.MAX_VALUE;
+        for (long trigram : trigramsOf(search, null)) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null) return 0;
+            estimate = Math.min(estimate, postings.size);
+        }
+        return estimate;
+    }
+
+    /**
+     * 已完成（completed 为 true）或未完成的条目编号，within 不为 null 时只在其中查找
+     */
+    BitSet completed(boolean completed, BitSet within) {
+        BitSet result = (BitSet) (within != null ? within : live).clone();
+        if (completed) {
+            result.and(this.completed);
+        } else {
+            result.and(live);
+            result.andNot(this.completed);
+        }
+        return result;
+    }
+
+    int completedCount() {
+        return completed.cardinality();
+    }
+
+    /**
+     * 创建时间（created 为 true）或截止时间落在 [from, to) 之间的条目编号，没有截止时间的条目不匹配
+     * 时间为 UTC 纪元微秒，to 为 Long.MAX_VALUE 时不限上界
+     */
+    BitSet timeRange(boolean created, long from, long to, BitSet within) {
+        long[] column = created ? createdColumn : dueColumn;
+        BitSet result = new BitSet(docs.size());
+        if (within == null) {
+            for (int number = live.nextSetBit(0); number >= 0; number = live.nextSetBit(number + 1)) {
+                if (inRange(column[number], from, to)) result.set(number);
+            }
+        } else {
+            for (int number = within.nextSetBit(0); number >= 0 && number < docs.size(); number = within.nextSetBit(number + 1)) {
+                if (live.get(number) && inRange(column[number], from, to)) result.set(number);
+            }
+        }
+        return result;
+    }
+
+    static boolean inRange(long time, long from, long to) {
+        return time != TodoItem.NO_TIME && time >= from && (to == Long.MAX_VALUE || time < to);
+    }
+
+    /**
+     * 编号为 number 的条目的标题或描述是否包含关键字，使用缓存的小写文本
+     */
+    boolean matchesText(int number, String search) {
+        Doc doc = number >= 0 && number < docs.size() ? docs.get(number) : null;
+        return doc != null && doc.matches(search);
+    }
+
+    /**
+     * 清单中所有条目的编号，返回的是内部位图，调用方不能修改
+     */
+    BitSet live() {
+        return live;
+    }
+
+    /**
+     * 清单中的条目数量
+     */
+    int size() {
+        return docsById.size();
+    }
+
+    /**
+     * 所有编号的上限（不含），包括已删除的编号
+     */
+    int capacity() {
+        return docs.size();
+    }
+
+    TodoItem item(int number) {
+        Doc doc = number >= 0 && number < docs.size() ? docs.get(number) : null;
+        return doc != null ? doc.item : null;
+    }
+
+    private void searchTrigrams(String search, BitSet matches, BitSet within) {
+        long[] queryTrigrams = trigramsOf(search, null);
+        List<Postings> lists = new ArrayList<>(queryTrigrams.length);
+        for (long trigram : queryTrigrams) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null || postings.size == 0) return;
+            lists.add(postings);
+        }
+
+        // 从最短的倒排表开始，其余的表用二分查找判断
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        Postings shortest = lists.get(0);
+
+        // 筛选范围比最短的倒排表还小时，改为遍历筛选范围
+        if (within != null && within.cardinality() < shortest.size) {
+            for (int number = within.nextSetBit(0); number >= 0 && number < docs.size(); number = within.nextSetBit(number + 1)) {
+                if (containsAll(lists, 0, number)) {
+                    verify(number, search, matches);
+                }
+            }
+            return;
+        }
+
+        for (int k = 0; k < shortest.size; k++) {
+            int number = shortest.numbers[k];
+            if (within != null && !within.get(number)) continue;
+            if (containsAll(lists, 1, number)) {
+                verify(number, search, matches);
+            }
+        }
+    }
+
+    private static boolean containsAll(List<Postings> lists, int from, int number) {
+        for (int l = from; l < lists.size(); l++) {
+            if (!lists.get(l).contains(number)) return false;
+        }
+        return true;
+    }
+
+    private void verify(int number, String search, BitSet matches) {
+        // 片段都出现不代表连续出现，用原文确认
+        Doc doc = docs.get(number);
+        if (doc != null && doc.matches(search)) {
+            matches.set(number);
+        }
+    }
+
+    private void registerTags(TodoItem item) {
+        List<Tag> itemTags = item.getTags();
+        for (int i = 0; i < itemTags.size(); i++) {
+            Tag tag = itemTags.get(i);
+            TagName tagName = tags.computeIfAbsent(tag.getId(), key -> new TagName());
+            tagName.tag = tag;
+        }
+    }
+
+    private void removePosting(long trigram, int number) {
+        Postings postings = trigrams.get(trigram);
+        if (postings == null) return;
+        postings.remove(number);
+        if (postings.size == 0) {
+            trigrams.remove(trigram);
+        }
+    }
+
+    private void compact() {
+        List<TodoItem> items = new ArrayList<>(docsById.size());
+        for (Doc doc : docs) {
+            if (doc != null) items.add(doc.item);
+        }
+        rebuild(items);
+    }
+
+    /**
+     * 计算文本中所有不重复的三字符片段，按大小排序
+     */
+    private static long[] trigramsOf(String first, String second) {
+        int firstCount = Math.max(0, first.length() - 2);
+        int secondCount = second != null ? Math.max(0, second.length() - 2) : 0;
+        long[] result = new long[firstCount + secondCount];
+        addTrigrams(first, result, 0);
+        if (second != null) {
+            addTrigrams(second, result, firstCount);
+        }
+        Arrays.sort(result);
+
+        // 去重
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (size == 0 || result[size - 1] != result[i]) {
+                result[size++] = result[i];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static void addTrigrams(String text, long[] result, int offset) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result[offset + i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+    }
+
+    /**
+     * 一个条目在索引中的数据
+     */
+    private static final class Doc {
+        final int number;
+        TodoItem item;
+        String title;
+        String description;
+        long[] trigrams;
+
+        Doc(int number, TodoItem item) {
+            this.number = number;
+            read(item);
+        }
+
+        void read(TodoItem item) {
+            this.item = item;
+            this.title = Utils.fold(item.getTitle());
+            this.description = Utils.fold(item.getDescription());
+            this.trigrams = trigramsOf(title, description);
+        }
+
+        boolean matches(String search) {
+            return title.contains(search) || description.contains(search);
+        }
+    }
+
+    /**
+     * 有序的条目编号数组
+     * 新条目的编号总是最大的，加入时通常只需追加到末尾
+     */
+    private static final class Postings {
+        int[] numbers = new int[4];
+        int size;
+
+        void add(int number) {
+            int index = size == 0 || numbers[size - 1] < number ? -(size + 1) : Arrays.binarySearch(numbers, 0, size, number);
+            if (index >= 0) return;
+            index = -(index + 1);
+
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            System.arraycopy(numbers, index, numbers, index + 1, size - index);
+            numbers[index] = number;
+            size++;
+        }
+
+        void remove(int number) {
+            int index = Arrays.binarySearch(numbers, 0, size, number);
+            if (index < 0) return;
+            System.arraycopy(numbers, index + 1, numbers, index, size - index - 1);
+            size--;
+        }
+
+        boolean contains(int number) {
+            return Arrays.binarySearch(numbers, 0, size, number) >= 0;
+        }
+    }
+
+    /**
+     * 标签的小写名称，按标签版本号缓存
+     * 查询可能在多个线程同时进行，缓存的名称和版本号放在同一个不可变对象中一起替换
+     */
+    private static final class TagName {
+        Tag tag;
+        private volatile Cached cached;
+
+        String lowerName() {
+            Cached current = cached;
+            int tagVersion = tag.getVersion();
+            if (current == null || current.version != tagVersion) {
+                current = new Cached(Utils.fold(tag.getName()), tagVersion);
+                cached = current;
+            }
+            return current.lowerName;
+        }
+
+        private record Cached(String lowerName, int version) {
+        }
+    }
+}
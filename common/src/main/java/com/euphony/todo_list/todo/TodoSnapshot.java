@@ -0,0 +1,39 @@
+package com.euphony.todo_list.todo;
+
+import java.util.List;
+
+/**
+ * 待办清单在某一时刻的只读快照，由 TodoListManager 在每次修改后发布
+ * 读取时不需要复制列表，可以安全地交给其他线程；条目对象本身仍可能在之后被修改
+ * 版本号在任何修改（包括单个条目的修改）后递增，读取方据此判断缓存的派生数据是否过期
+ */
+public final class TodoSnapshot {
+    static final TodoSnapshot EMPTY = new TodoSnapshot(List.of(), 0);
+
+    private final List<TodoItem> items;
+    private final long version;
+
+    TodoSnapshot(List<TodoItem> items, long version) {
+        this.items = items;
+        this.version = version;
+    }
+
+    /**
+     * 按显示顺序排列的条目，不可修改
+     */
+    public List<TodoItem> getItems() {
+        return items;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.euphony.todo_list.todo;
+
+import java.util.Comparator;
+
+/**
+ * 待办清单的排序方式，排序键相同的条目按加入顺序排列
+ */
+public enum TodoSort {
+    // 加入顺序，即原来的显示顺序
+    ADDED("added", Comparator.comparingLong(TodoItem::getSequence)),
+    // 截止时间最早的在前，没有截止时间的排在最后
+    DUE_DATE("due_date", Comparator.comparingLong(TodoSort::dueKey)),
+    // 最近创建的在前
+    CREATED("created", Comparator.comparingLong(item -> -item.getCreatedMicros())),
+    TITLE("title", Comparator.comparing(TodoItem::getTitle, String.CASE_INSENSITIVE_ORDER)),
+    // 未完成的在前
+    STATUS("status", Comparator.comparing(TodoItem::isCompleted));
+
+    private final String name;
+    private final Comparator<TodoItem> comparator;
+
+    TodoSort(String name, Comparator<TodoItem> comparator) {
+        this.name = name;
+        // 用加入顺序区分排序键相同的条目，同一棵排序树中不会有两个相等的条目
+        // 加入顺序在条目留在清单期间不变，搜索索引整理时重新分配编号不影响排序树
+        this.comparator = comparator.thenComparingLong(TodoItem::getSequence);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 界面上显示的名称的翻译键
+     */
+    public String getTranslationKey() {
+        return "todo_list.sort." + name;
+    }
+
+    public TodoSort next() {
+        TodoSort[] values = values();
+        return values[(ordinal() + 1) % values.length];
+    }
+
+    Comparator<TodoItem> comparator() {
+        return comparator;
+    }
+
+    private static long dueKey(TodoItem item) {
+        long due = item.getDueMicros();
+        return due == TodoItem.NO_TIME ? Long.MAX_VALUE : due;
+    }
+}
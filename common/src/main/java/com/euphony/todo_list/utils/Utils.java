@@ -3,8 +3,17 @@ package com.euphony.todo_list.utils;
 import com.euphony.todo_list.TodoList;
 import net.minecraft.resources.ResourceLocation;
 
+import java.util.Locale;
+
 public class Utils {
     public static ResourceLocation prefix(String path) {
         return ResourceLocation.fromNamespaceAndPath(TodoList.MOD_ID, path);
     }
+
+    /**
+     * 不区分大小写的比较和搜索统一使用的大小写折叠，与系统语言无关
+     */
+    public static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,175 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.todo.TodoItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static com.euphony.todo_list.data.BinarySnapshotCodecTest.assertRecordEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 归档分片跨多个块时，通过块索引能找到每条记录；改写分片后的内容与直接写出的结果相同
+ */
+class ArchiveBlockCodecTest {
+    private static final int RECORDS = 200;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void blockIndexFindsEveryRecord() throws IOException {
+        TreeMap<UUID, TodoDataManager.TodoData> expected = records(RECORDS);
+        Path file = shard("2025-06");
+        assertEquals(RECORDS, ArchiveBlockCodec.rewrite(null, file, byId(expected.values()), Set.of()));
+
+        assertRecordsEqual(expected, ArchiveBlockCodec.readAll(file));
+        for (TodoDataManager.TodoData data : expected.values()) {
+            assertRecordEquals(data, ArchiveBlockCodec.find(file, UUID.fromString(data.id)));
+        }
+        assertNull(ArchiveBlockCodec.find(file, new UUID(Long.MIN_VALUE, 0)));
+        assertNull(ArchiveBlockCodec.find(file, new UUID(Long.MAX_VALUE, -1)));
+        assertNull(ArchiveBlockCodec.find(file, UUID.randomUUID()));
+    }
+
+    @Test
+    void rewriteAppliesPutsAndRemovals() throws IOException {
+        TreeMap<UUID, TodoDataManager.TodoData> expected = records(RECORDS);
+        Path original = shard("original");
+        ArchiveBlockCodec.rewrite(null, original, byId(expected.values()), Set.of());
+
+        // 没有变化时所有块原样复制
+        Path copy = shard("copy");
+        assertEquals(RECORDS, ArchiveBlockCodec.rewrite(original, copy, Map.of(), Set.of()));
+        assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(copy));
+
+        // 删除、修改和新增的记录分布在不同的块中
+        List<UUID> ids = new ArrayList<>(expected.keySet());
+        Set<String> removed = new HashSet<>();
+        for (int i = 0; i < ids.size(); i += 7) {
+            removed.add(ids.get(i).toString());
+            expected.remove(ids.get(i));
+        }
+        List<TodoDataManager.TodoData> puts = new ArrayList<>();
+        for (int i = 3; i < ids.size(); i += 11) {
+            TodoDataManager.TodoData data = expected.get(ids.get(i));
+            if (data == null) continue;
+            data.title = "changed " + i;
+            puts.add(data);
+        }
+        TreeMap<UUID, TodoDataManager.TodoData> added = records(40);
+        puts.addAll(added.values());
+        expected.putAll(added);
+
+        Path rewritten = shard("rewritten");
+        assertEquals(expected.size(), ArchiveBlockCodec.rewrite(original, rewritten, byId(puts), removed));
+        assertRecordsEqual(expected, ArchiveBlockCodec.readAll(rewritten));
+        for (String id : removed) {
+            assertNull(ArchiveBlockCodec.find(rewritten, UUID.fromString(id)));
+        }
+        for (TodoDataManager.TodoData data : puts) {
+            assertRecordEquals(data, ArchiveBlockCodec.find(rewritten, UUID.fromString(data.id)));
+        }
+
+        // 删除全部记录时不写出空分片
+        Set<String> all = new HashSet<>();
+        expected.keySet().forEach(id -> all.add(id.toString()));
+        Path empty = shard("empty");
+        assertEquals(0, ArchiveBlockCodec.rewrite(rewritten, empty, Map.of(), all));
+        assertFalse(Files.exists(empty));
+    }
+
+    @Test
+    void damagedShardIsReported() throws IOException {
+        Path file = shard("damaged");
+        ArchiveBlockCodec.rewrite(null, file, byId(records(RECORDS).values()), Set.of());
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        assertDamaged(file);
+
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        assertDamaged(file);
+
+        // 块数量超出文件长度
+        byte[] count = bytes.clone();
+        count[8] = 0x7F;
+        Files.write(file, count);
+        assertDamaged(file);
+
+        // 第一个块的压缩数据头被破坏：头部 12 字节、4 个块的索引，再跳过记录数量
+        byte[] block = bytes.clone();
+        int data = 12 + 32 * 4 + 4;
+        block[data] = 0;
+        block[data + 1] = 0;
+        Files.write(file, block);
+        assertDamaged(file);
+
+        byte[] magic = bytes.clone();
+        magic[0] ^= 0x7F;
+        Files.write(file, magic);
+        assertDamaged(file);
+    }
+
+    /**
+     * 分片损坏时抛出 IOException 或 IllegalArgumentException，由归档写出时统一处理
+     */
+    private static void assertDamaged(Path file) {
+        try {
+            ArchiveBlockCodec.readAll(file);
+            ArchiveBlockCodec.find(file, UUID.randomUUID());
+            fail("damaged shard was read: " + file);
+        } catch (IOException | IllegalArgumentException expected) {
+            // 预期的异常
+        }
+    }
+
+    private Path shard(String name) {
+        return directory.resolve(name + ArchiveBlockCodec.SHARD_SUFFIX);
+    }
+
+    private static TreeMap<UUID, TodoDataManager.TodoData> records(int count) {
+        LocalDateTime created = LocalDateTime.of(2025, 6, 1, 8, 0);
+        TreeMap<UUID, TodoDataManager.TodoData> records = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            TodoItem item = new TodoItem(UUID.randomUUID(), "archived " + i, "description " + i, true,
+                    created.plusMinutes(i), created.plusDays(1).plusMinutes(i), null, List.of());
+            records.put(item.getId(), new TodoDataManager.TodoData(item));
+        }
+        return records;
+    }
+
+    private static Map<String, TodoDataManager.TodoData> byId(Iterable<TodoDataManager.TodoData> records) {
+        Map<String, TodoDataManager.TodoData> map = new HashMap<>();
+        for (TodoDataManager.TodoData data : records) {
+            map.put(data.id, data);
+        }
+        return map;
+    }
+
+    private static void assertRecordsEqual(TreeMap<UUID, TodoDataManager.TodoData> expected,
+                                           List<TodoDataManager.TodoData> actual) {
+        assertEquals(expected.size(), actual.size());
+        int i = 0;
+        for (TodoDataManager.TodoData data : expected.values()) {
+            assertRecordEquals(data, actual.get(i++));
+        }
+    }
+}
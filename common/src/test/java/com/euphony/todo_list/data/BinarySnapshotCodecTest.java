@@ -0,0 +1,117 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.todo.Tag;
+import com.euphony.todo_list.todo.TodoItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二进制快照写出后再读取，得到的记录与写出前完全相同
+ */
+class BinarySnapshotCodecTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripIsLossless() throws IOException {
+        Tag farm = new Tag("farm", 0xFF4CAF50);
+        Tag mining = new Tag("mining 采矿", 0xFF2196F3);
+        List<TodoDataManager.TagData> tags = List.of(new TodoDataManager.TagData(farm), new TodoDataManager.TagData(mining));
+
+        LocalDateTime created = LocalDateTime.of(2025, 7, 1, 10, 30, 15, 123_456_000);
+        List<TodoDataManager.TodoData> todos = new ArrayList<>();
+        todos.add(record(new TodoItem(UUID.randomUUID(), "open", "no dates", false, created, null, null, List.of())));
+        todos.add(record(new TodoItem(UUID.randomUUID(), "done", "", true, created, created.plusDays(2),
+                created.plusDays(5), List.of(farm, mining))));
+        todos.add(record(new TodoItem(UUID.randomUUID(), "emoji ⛏ 和中文", "line\nbreak", false, created, null,
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59), List.of(mining))));
+
+        // 标签表中没有的标签和缺少的字段
+        TodoDataManager.TodoData unknownTag = record(new TodoItem(UUID.randomUUID(), "unknown tag", "", false,
+                created, null, null, List.of(farm)));
+        String missing = UUID.randomUUID().toString();
+        unknownTag.tagIds = new ArrayList<>(List.of(missing, farm.getId().toString()));
+        todos.add(unknownTag);
+        TodoDataManager.TodoData nulls = new TodoDataManager.TodoData();
+        nulls.id = UUID.randomUUID().toString();
+        nulls.completed = true;
+        todos.add(nulls);
+
+        TodoDataManager.StoreData data = writeAndRead(todos, tags);
+
+        assertTrue(data.hasTags);
+        assertEquals(tags.size(), data.tags.size());
+        for (TodoDataManager.TagData tag : tags) {
+            TodoDataManager.TagData read = data.tags.get(tag.id);
+            assertEquals(tag.name, read.name);
+            assertEquals(tag.color, read.color);
+        }
+
+        assertEquals(todos.size(), data.todos.size());
+        List<TodoDataManager.TodoData> read = new ArrayList<>(data.todos.values());
+        for (int i = 0; i < todos.size(); i++) {
+            assertRecordEquals(todos.get(i), read.get(i));
+        }
+        assertEquals(List.of(missing, farm.getId().toString()), data.todos.get(unknownTag.id).tagIds);
+    }
+
+    @Test
+    void emptySnapshot() throws IOException {
+        TodoDataManager.StoreData data = writeAndRead(List.of(), List.of());
+        assertTrue(data.todos.isEmpty());
+        assertTrue(data.tags.isEmpty());
+    }
+
+    @Test
+    void truncatedFileIsReported() throws IOException {
+        Path file = directory.resolve(BinarySnapshotCodec.SNAPSHOT_FILE);
+        TodoDataManager.TodoData todo = record(new TodoItem("title", "description"));
+        BinarySnapshotCodec.write(file, List.of(todo), List.of());
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> BinarySnapshotCodec.read(file, new TodoDataManager.StoreData()));
+
+        bytes[0] ^= 0x7F;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> BinarySnapshotCodec.read(file, new TodoDataManager.StoreData()));
+    }
+
+    private TodoDataManager.StoreData writeAndRead(List<TodoDataManager.TodoData> todos,
+                                                   List<TodoDataManager.TagData> tags) throws IOException {
+        Path file = directory.resolve(BinarySnapshotCodec.SNAPSHOT_FILE);
+        BinarySnapshotCodec.write(file, todos, tags);
+        TodoDataManager.StoreData data = new TodoDataManager.StoreData();
+        BinarySnapshotCodec.read(file, data);
+        return data;
+    }
+
+    private static TodoDataManager.TodoData record(TodoItem item) {
+        return new TodoDataManager.TodoData(item);
+    }
+
+    static void assertRecordEquals(TodoDataManager.TodoData expected, TodoDataManager.TodoData actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.title, actual.title, "title of " + expected.id);
+        assertEquals(expected.description, actual.description, "description of " + expected.id);
+        assertEquals(expected.completed, actual.completed, "completed of " + expected.id);
+        assertEquals(expected.createdAt, actual.createdAt, "createdAt of " + expected.id);
+        assertEquals(expected.completedAt, actual.completedAt, "completedAt of " + expected.id);
+        assertEquals(expected.dueDate, actual.dueDate, "dueDate of " + expected.id);
+        List<String> expectedTags = expected.tagIds != null ? expected.tagIds : List.of();
+        assertEquals(expectedTags, actual.tagIds, "tags of " + expected.id);
+    }
+}
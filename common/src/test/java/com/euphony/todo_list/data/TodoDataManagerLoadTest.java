@@ -0,0 +1,55 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.todo.TagManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 无法解析的 JSON 文件导致加载失败，不会当作空清单继续，之后的保存不会覆盖它
+ */
+class TodoDataManagerLoadTest {
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        TagManager.getInstance().clear();
+    }
+
+    @Test
+    void damagedJsonFailsTheLoad() throws IOException {
+        String todo = "{\"id\": \"" + UUID.randomUUID() + "\", \"title\": \"iron farm\", \"description\": \"\", \"completed\": false}";
+        write("tags.json", "[]");
+        write("todos.json", "[" + todo + "]");
+        assertEquals(1, TodoDataManager.readTodos(directory).getTodos().size());
+
+        write("todos.json", "[" + todo + ", {\"id\": ");
+        assertThrows(IOException.class, () -> TodoDataManager.readTodos(directory));
+
+        write("todos.json", "{\"todos\": 1}");
+        assertThrows(IOException.class, () -> TodoDataManager.readTodos(directory));
+
+        write("todos.json", "[" + todo + "]");
+        write("tags.json", "[{\"id\": ");
+        assertThrows(IOException.class, () -> TodoDataManager.readTodos(directory));
+    }
+
+    @Test
+    void missingFilesLoadEmpty() throws IOException {
+        assertEquals(0, TodoDataManager.readTodos(directory).getTodos().size());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
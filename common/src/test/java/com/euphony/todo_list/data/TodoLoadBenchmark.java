@@ -0,0 +1,142 @@
+package com.euphony.todo_list.data;
+
+import com.euphony.todo_list.config.TodoConfig;
+import com.euphony.todo_list.todo.Tag;
+import com.euphony.todo_list.todo.TodoItem;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 加载 100k 条待办事项的 todos.json：流式读取（当前的加载路径）与先用 Gson 反序列化成完整列表再转换的对比
+ * 输出每种方式的耗时中位数和每次加载在当前线程上分配的字节数
+ * 运行：./gradlew :common:benchmark
+ */
+@org.junit.jupiter.api.Tag("benchmark")
+class TodoLoadBenchmark {
+    private static final int ITEMS = 100_000;
+    private static final int TAGS = 50;
+    private static final int WARMUP = 3;
+    private static final int RUNS = 7;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void load100k() throws IOException {
+        writeStore();
+
+        Measurement streaming = measure(() -> TodoDataManager.readTodos(directory).getTodos().size());
+        Measurement gsonList = measure(this::readWithGsonList);
+
+        System.out.printf("load %d todos (%d tags), todos.json %d KB%n", ITEMS, TAGS,
+                Files.size(directory.resolve("todos.json")) / 1024);
+        System.out.printf("  streaming reader : %7.1f ms  %8.1f MB allocated%n", streaming.millis, streaming.megabytes);
+        System.out.printf("  gson list + copy : %7.1f ms  %8.1f MB allocated%n", gsonList.millis, gsonList.megabytes);
+
+        assertEquals(ITEMS, streaming.count);
+        assertEquals(ITEMS, gsonList.count);
+    }
+
+    private void writeStore() {
+        Random random = new Random(42);
+        List<Tag> tags = new ArrayList<>(TAGS);
+        List<TodoDataManager.TagData> tagData = new ArrayList<>(TAGS);
+        for (int i = 0; i < TAGS; i++) {
+            Tag tag = new Tag("tag " + i, 0xFF000000 | random.nextInt(0xFFFFFF));
+            tags.add(tag);
+            tagData.add(new TodoDataManager.TagData(tag));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TodoDataManager.TodoData> todoData = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            boolean completed = random.nextInt(4) == 0;
+            LocalDateTime created = now.minusMinutes(random.nextInt(500_000));
+            List<Tag> itemTags = new ArrayList<>();
+            for (int t = random.nextInt(3); t > 0; t--) {
+                itemTags.add(tags.get(random.nextInt(TAGS)));
+            }
+            TodoItem item = new TodoItem(UUID.randomUUID(), "todo " + i + " " + Long.toString(random.nextLong(), 36),
+                    "description of todo " + i, completed, created, completed ? created.plusHours(1) : null,
+                    random.nextInt(5) == 0 ? created.plusDays(3) : null, itemTags);
+            todoData.add(new TodoDataManager.TodoData(item));
+        }
+
+        TodoDataManager.writeStore(directory, TodoConfig.StorageFormat.JSON, todoData, tagData);
+    }
+
+    /**
+     * 对照组：与流式读取前的加载方式相同，先得到完整的记录列表，再逐条转换
+     */
+    private int readWithGsonList() {
+        Gson gson = new Gson();
+        try (Reader tagsReader = Files.newBufferedReader(directory.resolve("tags.json"), StandardCharsets.UTF_8);
+             Reader todosReader = Files.newBufferedReader(directory.resolve("todos.json"), StandardCharsets.UTF_8)) {
+            List<TodoDataManager.TagData> tagData = gson.fromJson(tagsReader,
+                    new TypeToken<List<TodoDataManager.TagData>>() {}.getType());
+            Map<UUID, Tag> tags = new HashMap<>();
+            for (TodoDataManager.TagData data : tagData) {
+                Tag tag = data.toTag();
+                tags.put(tag.getId(), tag);
+            }
+
+            List<TodoDataManager.TodoData> todoData = gson.fromJson(todosReader,
+                    new TypeToken<List<TodoDataManager.TodoData>>() {}.getType());
+            Function<UUID, Tag> lookup = tags::get;
+            List<TodoItem> items = new ArrayList<>(todoData.size());
+            for (TodoDataManager.TodoData data : todoData) {
+                items.add(data.toTodoItem(lookup));
+            }
+            return items.size();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Measurement measure(LoadRun run) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            run.load();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] nanos = new long[RUNS];
+        long allocated = 0;
+        int count = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            count = run.load();
+            nanos[i] = System.nanoTime() - start;
+            allocated += threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        }
+        java.util.Arrays.sort(nanos);
+        return new Measurement(nanos[RUNS / 2] / 1e6, allocated / (double) RUNS / (1024 * 1024), count);
+    }
+
+    @FunctionalInterface
+    private interface LoadRun {
+        int load() throws IOException;
+    }
+
+    private record Measurement(double millis, double megabytes, int count) {
+    }
+}
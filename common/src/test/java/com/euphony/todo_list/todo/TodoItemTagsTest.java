@@ -0,0 +1,84 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 标签按 ID 判断是否相同：重新加载或替换后的标签对象与条目中原来的标签对象视为同一个标签
+ */
+class TodoItemTagsTest {
+    @AfterEach
+    void tearDown() {
+        TagManager.getInstance().clear();
+        TodoSaveScheduler.getInstance().discardPending();
+    }
+
+    @Test
+    void tagsWithSameIdMatch() {
+        Tag tag = new Tag("farm", 0xFF4CAF50);
+        Tag copy = new Tag(tag.getId(), "Farm", 0xFF2196F3);
+        TodoItem item = new TodoItem(UUID.randomUUID(), "todo", "", false,
+                LocalDateTime.now(), null, null, List.of(tag));
+
+        assertTrue(item.hasTag(copy));
+        assertTrue(item.getTags().contains(copy));
+
+        item.addTag(copy);
+        assertEquals(1, item.getTagCount());
+
+        item.removeTag(copy);
+        assertEquals(0, item.getTagCount());
+        assertFalse(item.hasTag(tag));
+    }
+
+    @Test
+    void duplicateTagsAreRemoved() {
+        Tag tag = new Tag("farm", 0xFF4CAF50);
+        Tag other = new Tag("mine", 0xFF2196F3);
+        TodoItem item = new TodoItem(UUID.randomUUID(), "todo", "", false, LocalDateTime.now(), null, null,
+                List.of(tag, other, new Tag(tag.getId(), "farm", 0xFF4CAF50)));
+
+        assertEquals(List.of(tag, other), item.getTags());
+    }
+
+    @Test
+    void taggedItemsAreFoundThroughCopies() {
+        TodoListManager manager = TodoListManager.getInstance();
+        Tag tag = TagManager.getInstance().createTag("farm");
+        TodoItem item = new TodoItem(UUID.randomUUID(), "todo", "", false,
+                LocalDateTime.now(), null, null, List.of(tag));
+        manager.mergeArchivedItems(List.of(item));
+        try {
+            assertEquals(List.of(item), manager.getTodoItemsByTag(new Tag(tag.getId(), "farm", 0xFF4CAF50)));
+        } finally {
+            manager.evictItems(List.of(item.getId()));
+        }
+        assertEquals(0, tag.getItems().cardinality());
+    }
+
+    @Test
+    void removedTagsAreForgotten() {
+        Tag tag = TagManager.getInstance().createTag("farm");
+        TagManager.getInstance().removeTag(tag.getId());
+        Tag recreated = new Tag(tag.getId(), "farm", 0xFF4CAF50);
+        assertNotSame(tag.getItems(), recreated.getItems());
+
+        // 序号不同时仍按 ID 判断
+        TodoItem item = new TodoItem(UUID.randomUUID(), "todo", "", false,
+                LocalDateTime.now(), null, null, List.of(tag, recreated));
+        assertEquals(1, item.getTagCount());
+        assertTrue(item.hasTag(recreated));
+        item.removeTag(recreated);
+        assertFalse(item.hasTag(tag));
+    }
+}
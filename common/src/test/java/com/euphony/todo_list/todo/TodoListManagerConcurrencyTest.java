@@ -0,0 +1,215 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 多个线程同时修改和查询待办清单，查询不能抛出异常或看到不一致的结构，结束后所有索引与清单一致
+ * 每个写线程只修改自己创建的条目；不设截止时间，也不取消完成或删除已完成的条目，避免用到提醒和归档的配置
+ */
+class TodoListManagerConcurrencyTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int OPERATIONS = 10_000;
+    private static final int PAGE = 10;
+
+    private final TodoListManager manager = TodoListManager.getInstance();
+    private final List<Tag> tags = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        clear();
+        for (int i = 0; i < 4; i++) {
+            tags.add(TagManager.getInstance().createTag("stress " + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        clear();
+    }
+
+    private void clear() {
+        manager.evictItems(manager.getAllTodoItems().stream().map(TodoItem::getId).toList());
+        TagManager.getInstance().clear();
+        TodoSaveScheduler.getInstance().discardPending();
+        tags.clear();
+    }
+
+    @Test
+    void concurrentReadersSeeConsistentState() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(start(failure, () -> {
+                start.await();
+                write(writer, new Random(writer));
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            int reader = r;
+            readers.add(start(failure, () -> {
+                start.await();
+                read(new Random(100 + reader), writing);
+            }));
+        }
+
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join(120_000);
+        }
+        writing.set(false);
+        for (Thread thread : readers) {
+            thread.join(120_000);
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("Concurrent access failed", failure.get());
+        }
+        for (Thread thread : writers) {
+            assertTrue(!thread.isAlive(), "writer did not finish");
+        }
+        assertConsistent();
+    }
+
+    private void write(int writer, Random random) {
+        List<UUID> open = new ArrayList<>();
+        int created = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int operation = random.nextInt(10);
+            if (open.size() < 50 || operation < 3) {
+                TodoItem item = new TodoItem(title(writer, created++, random), random.nextBoolean() ? "blue sky" : "grey");
+                manager.addTodoItem(item);
+                open.add(item.getId());
+            } else if (operation < 5) {
+                UUID id = open.get(random.nextInt(open.size()));
+                manager.updateTodoItem(id, title(writer, created++, random), random.nextBoolean() ? "blue" : "");
+            } else if (operation == 5) {
+                // 完成后不再修改它的完成状态，也不删除
+                manager.toggleCompleted(open.remove(random.nextInt(open.size())));
+            } else if (operation < 8) {
+                manager.removeTodoItem(open.remove(random.nextInt(open.size())));
+            } else if (operation == 8) {
+                List<UUID> batch = List.of(open.get(random.nextInt(open.size())), open.get(random.nextInt(open.size())));
+                Tag added = tags.get(random.nextInt(tags.size()));
+                Tag removed = tags.get(random.nextInt(tags.size()));
+                manager.updateTags(batch, List.of(added), added == removed ? List.of() : List.of(removed));
+            } else {
+                List<UUID> batch = new ArrayList<>();
+                for (int k = 0; k < 3; k++) {
+                    batch.add(open.remove(random.nextInt(open.size())));
+                }
+                manager.setCompleted(batch, true);
+            }
+        }
+    }
+
+    private static String title(int writer, int number, Random random) {
+        String[] words = {"red", "blue", "green", "iron farm", "mining"};
+        return words[random.nextInt(words.length)] + " task " + writer + "-" + number;
+    }
+
+    private void read(Random random, AtomicBoolean writing) {
+        long lastVersion = -1;
+        TodoSort[] sorts = TodoSort.values();
+        String[] queries = {"", "blue", "is:open", "is:done blue", "#\"stress 1\"", "task OR mining", "-red"};
+        do {
+            TodoSnapshot snapshot = manager.getSnapshot();
+            assertTrue(snapshot.getVersion() >= lastVersion, "snapshot version went back");
+            lastVersion = snapshot.getVersion();
+            assertEquals(snapshot.size(), new HashSet<>(snapshot.getItems()).size(), "duplicate items in snapshot");
+
+            TodoSort sort = sorts[random.nextInt(sorts.length)];
+            TodoQuery query = TodoQuery.parse(queries[random.nextInt(queries.length)]);
+            List<Tag> filter = random.nextInt(4) == 0 ? List.of(tags.get(random.nextInt(tags.size()))) : null;
+            TodoPage page = manager.queryPage(query, filter, sort, random.nextInt(200), PAGE);
+            assertTrue(page.items().size() <= PAGE, "page too large");
+            assertEquals(page.items().size(), new HashSet<>(page.items()).size(), "duplicate items in page");
+
+            if (!snapshot.isEmpty()) {
+                TodoItem item = snapshot.getItems().get(random.nextInt(snapshot.size()));
+                manager.getTodoItem(item.getId());
+                manager.getSortedIndex(sort, item.getId());
+                manager.getSortedItem(sort, random.nextInt(snapshot.size()));
+            }
+            manager.queryTodoItems(query, filter, sort, PAGE);
+        } while (writing.get());
+    }
+
+    /**
+     * 所有线程结束后，排序视图、搜索索引和标签位图都应与清单中的条目一致
+     */
+    private void assertConsistent() {
+        List<TodoItem> items = manager.getAllTodoItems();
+        assertEquals(items.size(), manager.getSnapshot().size());
+
+        for (TodoSort sort : TodoSort.values()) {
+            List<TodoItem> expected = new ArrayList<>(items);
+            expected.sort(sort.comparator());
+            List<TodoItem> actual = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                actual.add(manager.getSortedItem(sort, i));
+            }
+            assertEquals(expected, actual, "sorted view " + sort);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(i, manager.getSortedIndex(sort, expected.get(i).getId()), "rank in " + sort);
+            }
+        }
+
+        List<TodoItem> blue = items.stream()
+                .filter(item -> item.getTitle().contains("blue") || item.getDescription().contains("blue"))
+                .toList();
+        assertEquals(blue, manager.queryTodoItems(TodoQuery.parse("blue"), null, Integer.MAX_VALUE));
+
+        List<TodoItem> done = items.stream().filter(TodoItem::isCompleted).toList();
+        assertEquals(done, manager.queryTodoItems(TodoQuery.parse("is:done"), null, Integer.MAX_VALUE));
+
+        for (Tag tag : tags) {
+            Set<TodoItem> tagged = new HashSet<>();
+            for (TodoItem item : items) {
+                if (item.hasTag(tag)) tagged.add(item);
+            }
+            assertEquals(tagged, new HashSet<>(manager.getTodoItemsByTag(tag)), "items of " + tag.getName());
+            BitSet numbers = tag.getItems();
+            assertEquals(tagged.size(), numbers.cardinality(), "bitmap of " + tag.getName());
+        }
+    }
+
+    private static Thread start(AtomicReference<Throwable> failure, Task task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,57 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 加入相同 ID 的条目时替换原来的条目，排序视图和搜索索引中不能留下原来的条目
+ */
+class TodoListManagerReplaceTest {
+    private final TodoListManager manager = TodoListManager.getInstance();
+    private final List<UUID> added = new ArrayList<>();
+
+    @AfterEach
+    void clear() {
+        manager.evictItems(added);
+        added.clear();
+        TodoSaveScheduler.getInstance().discardPending();
+    }
+
+    @Test
+    void addingSameIdReplacesItem() {
+        TodoItem first = add(new TodoItem("first", ""));
+        TodoItem original = add(new TodoItem("original title", ""));
+        TodoItem last = add(new TodoItem("last", ""));
+        TodoItem replacement = add(new TodoItem(original.getId(), "replacement title", "", false,
+                LocalDateTime.now(), null, null, List.of()));
+
+        assertSame(replacement, manager.getTodoItem(original.getId()));
+        assertEquals(List.of(first, last, replacement), manager.getAllTodoItems());
+        for (TodoSort sort : TodoSort.values()) {
+            List<TodoItem> sorted = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                sorted.add(manager.getSortedItem(sort, i));
+            }
+            assertNull(sorted.get(3), "stale node in " + sort);
+            assertEquals(1, sorted.stream().filter(item -> item == replacement).count(), "replacement in " + sort);
+        }
+        assertEquals(List.of(), manager.queryTodoItems(TodoQuery.parse("original"), null, Integer.MAX_VALUE));
+        assertEquals(List.of(replacement), manager.queryTodoItems(TodoQuery.parse("replacement"), null, Integer.MAX_VALUE));
+    }
+
+    private TodoItem add(TodoItem item) {
+        manager.addTodoItem(item);
+        added.add(item.getId());
+        return item;
+    }
+}
@@ -0,0 +1,104 @@
+package com.euphony.todo_list.todo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 按 ID 查找和删除待办事项：TodoListManager 的 ID 索引与原来的 ArrayList 线性查找对比
+ * 分别在 10k、100k 和 1M 条待办事项上测量，输出每次操作的平均耗时
+ * 运行：./gradlew :common:benchmark
+ */
+@org.junit.jupiter.api.Tag("benchmark")
+class TodoLookupBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 100_000;
+    private static final int REMOVALS = 1_000;
+    // 线性查找在 1M 条时每次需要几毫秒，对照组少做一些操作
+    private static final int LINEAR_OPERATIONS = 200;
+
+    private final TodoListManager manager = TodoListManager.getInstance();
+    private final List<UUID> loaded = new ArrayList<>();
+
+    @AfterEach
+    void clear() {
+        manager.evictItems(loaded);
+        loaded.clear();
+    }
+
+    @Test
+    void lookupAndRemove() {
+        System.out.printf("%10s %16s %16s %16s %16s%n",
+                "items", "index get", "list get", "index remove", "list remove");
+        for (int size : SIZES) {
+            List<TodoItem> items = createItems(size);
+            Random random = new Random(size);
+
+            // 对照组：原来的实现，按加入顺序保存在 ArrayList 中
+            List<TodoItem> list = new ArrayList<>(items);
+            double listGet = timePerOperation(LINEAR_OPERATIONS, () -> {
+                UUID id = items.get(random.nextInt(size)).getId();
+                TodoItem found = list.stream().filter(item -> item.getId().equals(id)).findFirst().orElse(null);
+                assertSame(id, found.getId());
+            });
+            List<UUID> listRemovalOrder = new ArrayList<>(ids(items));
+            Collections.shuffle(listRemovalOrder, random);
+            Iterator<UUID> listRemovals = listRemovalOrder.iterator();
+            double listRemove = timePerOperation(LINEAR_OPERATIONS, () -> {
+                UUID id = listRemovals.next();
+                list.removeIf(item -> item.getId().equals(id));
+            });
+
+            loaded.addAll(manager.mergeArchivedItems(items).stream().map(TodoItem::getId).toList());
+            assertEquals(size, loaded.size());
+            double indexGet = timePerOperation(LOOKUPS, () -> {
+                UUID id = items.get(random.nextInt(size)).getId();
+                assertSame(id, manager.getTodoItem(id).getId());
+            });
+            // 逐条删除，与界面中的删除相同；快照在下次读取时才复制，不计入删除的耗时
+            List<UUID> removalOrder = new ArrayList<>(loaded);
+            Collections.shuffle(removalOrder, random);
+            Iterator<UUID> removals = removalOrder.iterator();
+            double indexRemove = timePerOperation(REMOVALS, () -> manager.evictItems(List.of(removals.next())));
+            clear();
+
+            System.out.printf("%10d %13.3f us %13.3f us %13.3f us %13.3f us%n",
+                    size, indexGet / 1000, listGet / 1000, indexRemove / 1000, listRemove / 1000);
+        }
+    }
+
+    private static List<UUID> ids(List<TodoItem> items) {
+        return items.stream().map(TodoItem::getId).toList();
+    }
+
+    private static List<TodoItem> createItems(int size) {
+        List<TodoItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new TodoItem("todo " + i, ""));
+        }
+        return items;
+    }
+
+    /**
+     * 先预热一轮，再返回每次操作的平均纳秒数
+     */
+    private static double timePerOperation(int operations, Runnable operation) {
+        for (int i = 0; i < Math.min(operations, 1_000); i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / (double) operations;
+    }
+}
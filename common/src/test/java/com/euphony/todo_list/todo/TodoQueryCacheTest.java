@@ -0,0 +1,126 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 缓存的游标在清单版本或标签名称版本变化后作废，不会返回修改前的结果
+ */
+class TodoQueryCacheTest {
+    private final TodoSearchIndex index = new TodoSearchIndex();
+    private final List<UUID> added = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        index.clear();
+        TodoListManager.getInstance().evictItems(added);
+        added.clear();
+        TagManager.getInstance().clear();
+        TodoSaveScheduler.getInstance().discardPending();
+    }
+
+    @Test
+    void cursorsExpireWithVersions() {
+        index.add(new TodoItem("iron farm", ""));
+        TodoQueryCache cache = new TodoQueryCache();
+        TodoQuery query = TodoQuery.parse("iron");
+        TodoQueryCache.Key key = TodoQueryCache.key(query, null, TodoSort.TITLE);
+
+        TodoQuery.Cursor cursor = query.cursor(index, null, null, 1, null);
+        cache.put(key, query, cursor, 5);
+        assertSame(cursor, cache.get(key, 1, 5));
+
+        // 作废的游标同时被移除，版本恢复后也不会再返回
+        assertNull(cache.get(key, 2, 5));
+        assertNull(cache.get(key, 1, 5));
+
+        cache.put(key, query, cursor, 5);
+        assertNull(cache.get(key, 1, 6));
+        assertNull(cache.get(key, 1, 5));
+    }
+
+    @Test
+    void narrowingSkipsExpiredCursors() {
+        Tag farm = TagManager.getInstance().createTag("farm");
+        index.add(new TodoItem("iron farm", ""));
+        index.add(new TodoItem("iron gate", ""));
+        TodoQueryCache cache = new TodoQueryCache();
+        TodoQuery broad = TodoQuery.parse("iron");
+        cache.put(TodoQueryCache.key(broad, null, TodoSort.TITLE), broad,
+                broad.cursor(index, null, null, 1, null), 5);
+
+        TodoQuery narrow = TodoQuery.parse("iron farm");
+        TodoQueryCache.Key key = TodoQueryCache.key(narrow, null, TodoSort.CREATED);
+        // 与排序方式无关
+        assertNotNull(cache.narrowing(key, narrow, 1, 5));
+        assertNull(cache.narrowing(key, narrow, 2, 5));
+        assertNull(cache.narrowing(key, narrow, 1, 6));
+        assertNull(cache.narrowing(TodoQueryCache.key(narrow, List.of(farm), TodoSort.CREATED), narrow, 1, 5));
+        assertNull(cache.narrowing(key, TodoQuery.parse("gold"), 1, 5));
+    }
+
+    @Test
+    void keysIgnoreSpellingAndTagOrder() {
+        Tag farm = TagManager.getInstance().createTag("farm");
+        Tag mine = TagManager.getInstance().createTag("mine");
+        TodoQueryCache.Key key = TodoQueryCache.key(TodoQuery.parse("is:open #farm"), List.of(farm, mine), TodoSort.TITLE);
+
+        assertEquals(key, TodoQueryCache.key(TodoQuery.parse("#FARM   is:open"), List.of(mine, farm), TodoSort.TITLE));
+        assertNotEquals(key, TodoQueryCache.key(TodoQuery.parse("is:open #farm"), List.of(farm), TodoSort.TITLE));
+        assertNotEquals(key, TodoQueryCache.key(TodoQuery.parse("is:open #farm"), List.of(farm, mine), TodoSort.DUE_DATE));
+        assertNotEquals(key, TodoQueryCache.key(TodoQuery.parse("is:done #farm"), List.of(farm, mine), TodoSort.TITLE));
+    }
+
+    @Test
+    void pagesFollowRenamesAndEdits() {
+        TodoListManager manager = TodoListManager.getInstance();
+        TagManager tags = TagManager.getInstance();
+        Tag farm = tags.createTag("farm");
+        Tag barn = tags.createTag("barn");
+        TodoItem wheat = item("wheat", farm);
+        TodoItem hay = item("hay", barn);
+        manager.mergeArchivedItems(List.of(wheat, hay));
+
+        assertEquals(List.of(wheat), page("#farm").items());
+        // 第二次读取来自缓存的游标
+        assertSame(wheat, page("#farm").items().get(0));
+
+        // 改名不修改清单版本，按名称查找的标签由名称版本作废
+        tags.renameTag(farm.getId(), "field");
+        tags.renameTag(barn.getId(), "farm");
+        assertEquals(List.of(hay), page("#farm").items());
+
+        // 修改清单后重新计算
+        TodoItem straw = new TodoItem("straw", "", List.of(barn), null);
+        manager.addTodoItem(straw);
+        added.add(straw.getId());
+        TodoPage page = page("#farm");
+        assertEquals(List.of(hay, straw), page.items());
+        assertEquals(2, page.total());
+
+        manager.toggleCompleted(hay.getId());
+        assertEquals(List.of(straw), page("#farm is:open").items());
+    }
+
+    private TodoPage page(String text) {
+        return TodoListManager.getInstance().queryPage(TodoQuery.parse(text), null, TodoSort.TITLE, 0, 10);
+    }
+
+    private TodoItem item(String title, Tag tag) {
+        TodoItem item = new TodoItem(UUID.randomUUID(), title, "", false, LocalDateTime.now(), null, null, List.of(tag));
+        added.add(item.getId());
+        return item;
+    }
+}
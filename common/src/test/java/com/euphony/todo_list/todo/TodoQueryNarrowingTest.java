@@ -0,0 +1,166 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.data.TodoSaveScheduler;
+import com.euphony.todo_list.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在之前更宽的查询的结果范围内计算，得到的结果与不缩小范围时相同
+ */
+class TodoQueryNarrowingTest {
+    private static final String[] TITLES = {"iron farm", "gold mine", "wheat farm", "build wall", "Iron gate"};
+    // 之前的查询和在它基础上继续输入的查询
+    private static final String[][] REFINEMENTS = {
+            {"iron", "iron farm"},
+            {"ir", "iron"},
+            {"ir", "ir #farm"},
+            {"#farm", "#farm is:open"},
+            {"#farm ir", "#farm iro is:done"},
+            {"created<7d", "created<3d iron"},
+            {"iron #mine", "iron #mine -gate"},
+            {"-#farm", "-#farm is:open"},
+    };
+
+    private final TodoSearchIndex index = new TodoSearchIndex();
+    private final List<UUID> added = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        index.clear();
+        TodoListManager.getInstance().evictItems(added);
+        added.clear();
+        TagManager.getInstance().clear();
+        TodoSaveScheduler.getInstance().discardPending();
+    }
+
+    @Test
+    void refinesOnlyStricterQueries() {
+        TagManager.getInstance().createTag("farm");
+        TagManager.getInstance().createTag("mine");
+        for (String[] refinement : REFINEMENTS) {
+            assertTrue(TodoQuery.parse(refinement[1]).refines(TodoQuery.parse(refinement[0])), refinement[1]);
+        }
+        assertFalse(TodoQuery.parse("iro").refines(TodoQuery.parse("iron")));
+        assertFalse(TodoQuery.parse("iron").refines(TodoQuery.parse("iron #farm")));
+        assertFalse(TodoQuery.parse("created<7d").refines(TodoQuery.parse("created<3d")));
+        assertFalse(TodoQuery.parse("is:open").refines(TodoQuery.parse("is:done")));
+        assertFalse(TodoQuery.parse("iron").refines(TodoQuery.parse("")));
+        assertFalse(TodoQuery.parse("").refines(TodoQuery.parse("iron")));
+    }
+
+    @Test
+    void narrowedCursorsMatchFreshOnes() {
+        Tag farm = TagManager.getInstance().createTag("farm");
+        Tag mine = TagManager.getInstance().createTag("mine");
+        LocalDateTime now = LocalDateTime.now();
+        List<TodoItem> items = new ArrayList<>();
+        // 足够多的条目，使逐条检查的查询在第一页后还没有找全
+        for (int i = 0; i < 6000; i++) {
+            List<Tag> tags = new ArrayList<>();
+            if (i % 2 == 0) tags.add(farm);
+            if (i % 3 == 0) tags.add(mine);
+            TodoItem item = new TodoItem(UUID.randomUUID(), TITLES[i % TITLES.length] + " " + i, "", i % 4 == 0,
+                    now.minusMinutes(i * 7L + 30), null, null, tags);
+            item.setSequence(i + 1);
+            items.add(item);
+            index.add(item);
+        }
+        OrderStatisticTree byTitle = new OrderStatisticTree(TodoSort.TITLE.comparator());
+        byTitle.rebuild(items);
+
+        for (String[] refinement : REFINEMENTS) {
+            TodoQuery previous = TodoQuery.parse(refinement[0]);
+            TodoQuery refined = TodoQuery.parse(refinement[1]);
+            for (OrderStatisticTree order : new OrderStatisticTree[]{null, byTitle}) {
+                List<TodoItem> expected = drain(refined.cursor(index, null, order, 1, null));
+                // 之前的查询没有检查、检查了一页和全部检查完时的结果范围
+                for (int needed : new int[]{0, 10, Integer.MAX_VALUE}) {
+                    String message = refinement[0] + " -> " + refinement[1] + (order == null ? "" : " by title") + " after " + needed;
+                    TodoQuery.Cursor cursor = previous.cursor(index, null, order, 1, null);
+                    if (needed > 0 && !cursor.covers(0, needed)) {
+                        cursor.commit(cursor.extend(needed));
+                    }
+                    TodoQuery.Narrowing narrowing = cursor.narrowing();
+                    if (narrowing == null) continue;
+
+                    TodoQuery.Cursor narrowed = refined.cursor(index, null, order, 1, narrowing);
+                    TodoQuery.Cursor fresh = refined.cursor(index, null, order, 1, null);
+                    TodoPage first = page(narrowed, 0, 10);
+                    assertEquals(page(fresh, 0, 10).items(), first.items(), message);
+                    if (first.exact()) assertEquals(expected.size(), first.total(), message);
+                    assertEquals(expected, drain(narrowed), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void narrowingFollowsEdits() {
+        TodoListManager manager = TodoListManager.getInstance();
+        List<TodoItem> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            TodoItem item = new TodoItem(TITLES[i % TITLES.length] + " " + i, "");
+            manager.addTodoItem(item);
+            added.add(item.getId());
+            items.add(item);
+        }
+
+        // 逐字输入，每次都可以在上一次的结果范围内计算
+        for (String text : List.of("ir", "iro", "iron", "iron ", "iron f", "iron fa")) {
+            assertEquals(matching(text), page(text).items(), text);
+        }
+
+        // 清单修改后之前的结果范围作废：改名后开始匹配、删除或改名后不再匹配的条目
+        assertEquals(matching("iron"), page("iron").items());
+        manager.updateTodoItem(items.get(1).getId(), "iron gold 1", "");
+        manager.updateTodoItem(items.get(5).getId(), "copper farm 5", "");
+        manager.removeTodoItem(items.get(10).getId());
+        for (String text : List.of("iron g", "iron go", "iron f", "iron fa")) {
+            assertEquals(matching(text), page(text).items(), text);
+        }
+        assertTrue(page("iron g").items().contains(items.get(1)));
+        assertNotNull(manager.getTodoItem(items.get(5).getId()));
+        assertFalse(page("iron f").items().contains(items.get(5)));
+        assertFalse(page("iron f").items().contains(items.get(10)));
+    }
+
+    private TodoPage page(String text) {
+        return TodoListManager.getInstance().queryPage(TodoQuery.parse(text), null, TodoSort.TITLE, 0, 100);
+    }
+
+    private static List<TodoItem> matching(String text) {
+        String search = Utils.fold(text).trim();
+        List<TodoItem> expected = new ArrayList<>(TodoListManager.getInstance().getAllTodoItems().stream()
+                .filter(item -> Utils.fold(item.getTitle()).contains(search)).toList());
+        expected.sort(TodoSort.TITLE.comparator());
+        return expected;
+    }
+
+    private static TodoPage page(TodoQuery.Cursor cursor, int offset, int limit) {
+        if (!cursor.covers(offset, limit)) {
+            cursor.commit(cursor.extend(offset + limit));
+        }
+        return cursor.page(offset, limit);
+    }
+
+    /**
+     * 检查完全部候选，返回所有结果
+     */
+    private static List<TodoItem> drain(TodoQuery.Cursor cursor) {
+        TodoPage page = page(cursor, 0, Integer.MAX_VALUE);
+        assertTrue(page.exact());
+        assertEquals(page.total(), page.items().size());
+        return page.items();
+    }
+}
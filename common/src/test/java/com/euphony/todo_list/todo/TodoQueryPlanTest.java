@@ -0,0 +1,195 @@
+package com.euphony.todo_list.todo;
+
+import com.euphony.todo_list.utils.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 查询计划、排序树遍历和游标分页的结果与逐条过滤再排序的结果相同；总数超出检查范围时按抽样估计
+ */
+class TodoQueryPlanTest {
+    private static final String[] TITLES = {"iron farm", "gold mine", "wheat farm", "build wall", "Iron gate"};
+
+    private final TodoSearchIndex index = new TodoSearchIndex();
+    private final List<TodoItem> items = new ArrayList<>();
+    private final LocalDateTime now = LocalDateTime.now();
+    private Tag farm;
+    private Tag mine;
+
+    @BeforeEach
+    void setUp() {
+        farm = TagManager.getInstance().createTag("farm");
+        mine = TagManager.getInstance().createTag("mine");
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.clear();
+        TagManager.getInstance().clear();
+    }
+
+    @Test
+    void executeMatchesBruteForce() {
+        fill(600);
+        for (Map.Entry<String, Predicate<TodoItem>> query : queries().entrySet()) {
+            for (OrderStatisticTree order : orders()) {
+                TodoQuery parsed = TodoQuery.parse(query.getKey());
+                List<TodoItem> expected = expected(query.getValue(), order);
+                String message = query.getKey() + " by " + describe(order);
+
+                assertEquals(expected, parsed.execute(index, null, order, Integer.MAX_VALUE), message);
+                assertEquals(expected.subList(0, Math.min(7, expected.size())), parsed.execute(index, null, order, 7), message);
+                assertEquals(expected(query.getValue().and(item -> item.hasTag(mine)), order),
+                        parsed.execute(index, List.of(mine), order, Integer.MAX_VALUE), message + " with #mine");
+            }
+        }
+    }
+
+    @Test
+    void cursorPagesMatchBruteForce() {
+        fill(600);
+        for (Map.Entry<String, Predicate<TodoItem>> query : queries().entrySet()) {
+            for (OrderStatisticTree order : orders()) {
+                TodoQuery parsed = TodoQuery.parse(query.getKey());
+                List<TodoItem> expected = expected(query.getValue(), order);
+                String message = query.getKey() + " by " + describe(order);
+
+                TodoQuery.Cursor cursor = parsed.cursor(index, null, order, 1, null);
+                List<TodoItem> paged = new ArrayList<>();
+                for (int offset = 0; offset <= expected.size(); offset += 25) {
+                    if (!cursor.covers(offset, 25)) {
+                        TodoQuery.Cursor.Extension extension = cursor.extend(offset + 25);
+                        // 没有 commit 的检查结果不影响游标
+                        assertFalse(cursor.covers(offset, 25), message);
+                        cursor.commit(extension);
+                        assertTrue(cursor.covers(offset, 25), message);
+                    }
+                    TodoPage page = cursor.page(offset, 25);
+                    assertEquals(offset, page.offset(), message);
+                    assertEquals(expected.size(), page.total(), message);
+                    assertTrue(page.exact(), message);
+                    assertEquals(page, parsed.page(index, null, order, offset, 25), message);
+                    paged.addAll(page.items());
+                }
+                assertEquals(expected, paged, message);
+                assertTrue(cursor.page(expected.size() + 100, 25).isEmpty(), message);
+            }
+        }
+    }
+
+    @Test
+    void countIsEstimatedBeyondBudget() {
+        for (int i = 0; i < 12000; i++) {
+            add(i % 2 == 0 ? "ab " + i : "cd " + i, false, now, null, i % 3 == 0 ? List.of(farm) : List.of());
+        }
+        OrderStatisticTree byTitle = new OrderStatisticTree(TodoSort.TITLE.comparator());
+        byTitle.rebuild(items);
+
+        // 逐条检查的条件在凑够一页后只再检查有限数量的条目，总数按抽样估计
+        for (OrderStatisticTree order : new OrderStatisticTree[]{null, byTitle}) {
+            List<TodoItem> expected = expected(item -> item.getTitle().startsWith("ab"), order);
+            TodoPage page = TodoQuery.parse("ab").page(index, null, order, 0, 10);
+            assertEquals(expected.subList(0, 10), page.items());
+            assertFalse(page.exact());
+            assertTrue(Math.abs(page.total() - expected.size()) < expected.size() / 10,
+                    "estimated " + page.total() + " of " + expected.size());
+        }
+
+        // 全部条件都有索引时总数就是候选数量
+        TodoPage tagged = TodoQuery.parse("#farm").page(index, null, null, 100, 10);
+        assertTrue(tagged.exact());
+        assertEquals(4000, tagged.total());
+        assertEquals(expected(item -> item.hasTag(farm), null).subList(100, 110), tagged.items());
+
+        // 候选在检查范围内时逐条检查完所有候选，总数是准确的
+        TodoPage narrowed = TodoQuery.parse("ab #farm").page(index, null, byTitle, 20, 10);
+        List<TodoItem> expected = expected(item -> item.getTitle().startsWith("ab") && item.hasTag(farm), byTitle);
+        assertTrue(narrowed.exact());
+        assertEquals(expected.size(), narrowed.total());
+        assertEquals(expected.subList(20, 30), narrowed.items());
+    }
+
+    /**
+     * 查询文本和逐条判断的等价条件；相对时间的边界与条目时间相差半小时，不受执行时间影响
+     */
+    private Map<String, Predicate<TodoItem>> queries() {
+        Map<String, Predicate<TodoItem>> queries = new LinkedHashMap<>();
+        queries.put("", item -> true);
+        queries.put("iron", item -> contains(item, "iron"));
+        queries.put("ir", item -> contains(item, "ir"));
+        queries.put("#farm", item -> item.hasTag(farm));
+        queries.put("#farm is:open", item -> item.hasTag(farm) && !item.isCompleted());
+        queries.put("iron OR #mine", item -> contains(item, "iron") || item.hasTag(mine));
+        queries.put("-#farm ir", item -> !item.hasTag(farm) && contains(item, "ir"));
+        queries.put("created<7d", item -> item.getCreatedAt().isAfter(now.minusDays(7)));
+        queries.put("due<3d #farm", item -> item.getDueDate() != null
+                && item.getDueDate().isBefore(now.plusDays(3)) && item.hasTag(farm));
+        queries.put("farm -gate is:done", item -> contains(item, "farm") && !contains(item, "gate") && item.isCompleted());
+        queries.put("wall base is:open", item -> contains(item, "wall") && contains(item, "base") && !item.isCompleted());
+        return queries;
+    }
+
+    /**
+     * null 表示按显示顺序
+     */
+    private List<OrderStatisticTree> orders() {
+        List<OrderStatisticTree> orders = new ArrayList<>();
+        orders.add(null);
+        for (TodoSort sort : TodoSort.values()) {
+            OrderStatisticTree order = new OrderStatisticTree(sort.comparator());
+            order.rebuild(items);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private List<TodoItem> expected(Predicate<TodoItem> filter, OrderStatisticTree order) {
+        List<TodoItem> expected = new ArrayList<>(items.stream().filter(filter).toList());
+        if (order != null) expected.sort(order.comparator());
+        return expected;
+    }
+
+    private static boolean contains(TodoItem item, String text) {
+        return Utils.fold(item.getTitle()).contains(text) || Utils.fold(item.getDescription()).contains(text);
+    }
+
+    private static String describe(OrderStatisticTree order) {
+        if (order == null) return "display order";
+        for (TodoSort sort : TodoSort.values()) {
+            if (sort.comparator() == order.comparator()) return sort.getName();
+        }
+        return "unknown order";
+    }
+
+    private void fill(int count) {
+        for (int i = 0; i < count; i++) {
+            List<Tag> tags = new ArrayList<>();
+            if (i % 2 == 0) tags.add(farm);
+            if (i % 3 == 0) tags.add(mine);
+            LocalDateTime created = now.minusMinutes(i * 420L + 30);
+            LocalDateTime due = i % 5 == 0 ? now.plusMinutes(i * 60L + 30 - 600) : null;
+            add(TITLES[i % TITLES.length] + " " + i + (i % 7 == 0 ? " near base" : ""), i % 4 == 0, created, due, tags);
+        }
+    }
+
+    private void add(String title, boolean completed, LocalDateTime created, LocalDateTime due, List<Tag> tags) {
+        TodoItem item = new TodoItem(UUID.randomUUID(), title, "", completed, created,
+                completed ? created.plusHours(1) : null, due, tags);
+        item.setSequence(items.size() + 1);
+        items.add(item);
+        index.add(item);
+    }
+}
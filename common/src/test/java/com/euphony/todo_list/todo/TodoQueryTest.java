@@ -0,0 +1,89 @@
+package com.euphony.todo_list.todo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 查询文本的解析：语法不完整或日期超出范围时整段按文字搜索，解析不会抛出异常
+ */
+class TodoQueryTest {
+    private final TodoSearchIndex index = new TodoSearchIndex();
+    private final List<TodoItem> items = new ArrayList<>();
+    private Tag farm;
+
+    @BeforeEach
+    void setUp() {
+        farm = TagManager.getInstance().createTag("farm");
+        add("#1 priority", false);
+        add("-5 degrees", false);
+        add("call mom (urgent)", false);
+        add("iron farm", true, farm);
+        add("mining a OR", false);
+        add("\"iron farm", false);
+        add("due<99999999999999999999d", false);
+        add("due<999999999999d", false);
+        add("created>99999999999w", false);
+        add("due:+999999999-12-31", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.clear();
+        TagManager.getInstance().clear();
+    }
+
+    @Test
+    void outOfRangeDatesAreSearchedAsText() {
+        for (String text : List.of("due<99999999999999999999d", "due<999999999999d",
+                "created>99999999999w", "due:+999999999-12-31")) {
+            assertEquals(literal(text), run(text), text);
+        }
+    }
+
+    @Test
+    void incompleteSyntaxIsSearchedAsText() {
+        for (String text : List.of("#1 priority", "-5 degrees", "!5 degrees", "call mom (urgent)",
+                "a OR", "OR", "mining a OR", "\"iron farm", "(iron farm", "iron farm)", "NOT", "#unknown")) {
+            assertEquals(literal(text), run(text), text);
+        }
+    }
+
+    @Test
+    void completeSyntaxIsParsed() {
+        TodoItem ironFarm = items.get(3);
+        assertEquals(List.of(ironFarm), run("#farm"));
+        assertEquals(List.of(ironFarm), run("is:done"));
+        assertEquals(List.of(items.get(0), items.get(2)), run("priority OR mom"));
+        assertEquals(items.size() - 1, run("-#farm").size());
+        assertEquals(List.of(), run("due<3d"));
+        assertEquals(List.of(ironFarm), run("created<1d #farm"));
+    }
+
+    private List<TodoItem> run(String text) {
+        return TodoQuery.parse(text).execute(index, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 标题包含整段文字的条目，即按文字搜索的结果
+     */
+    private List<TodoItem> literal(String text) {
+        String search = text.toLowerCase(Locale.ROOT).trim();
+        return items.stream().filter(item -> item.getTitle().toLowerCase(Locale.ROOT).contains(search)).toList();
+    }
+
+    private void add(String title, boolean completed, Tag... tags) {
+        TodoItem item = new TodoItem(UUID.randomUUID(), title, "", completed, LocalDateTime.now(),
+                completed ? LocalDateTime.now() : null, null, List.of(tags));
+        items.add(item);
+        index.add(item);
+    }
+}
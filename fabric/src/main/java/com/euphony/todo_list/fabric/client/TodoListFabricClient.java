@@ -1,10 +1,12 @@
 package com.euphony.todo_list.fabric.client;
 
+import com.euphony.todo_list.client.TodoClient;
 import com.euphony.todo_list.client.keymapping.TodoKeyMappings;
 import com.euphony.todo_list.client.keymapping.event.OpenTodoListEvent;
 import com.euphony.todo_list.client.overlay.TodoOverlay;
 import com.euphony.todo_list.todo.TodoListManager;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
@@ -19,6 +21,7 @@ public final class TodoListFabricClient implements ClientModInitializer {
         KeyBindingHelper.registerKeyBinding(TodoKeyMappings.OPEN_TODO_LIST);
 
         ClientTickEvents.END_CLIENT_TICK.register(OpenTodoListEvent::handleKeyInput);
+        ClientTickEvents.END_CLIENT_TICK.register(TodoClient::onClientTick);
 
         // 注册悬浮窗渲染事件
         HudRenderCallback.EVENT.register(TodoOverlay::render);
@@ -33,7 +36,11 @@ public final class TodoListFabricClient implements ClientModInitializer {
 
         ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
             // 在客户端连接时加载待办事项
-            TodoListManager.getInstance().loadFromFile();
+            TodoListManager.getInstance().loadFromFileAsync();
         });
+
+        // 断开连接和退出游戏时写出尚未保存的修改
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> TodoClient.onDisconnect());
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> TodoClient.onClientStopping());
     }
 }
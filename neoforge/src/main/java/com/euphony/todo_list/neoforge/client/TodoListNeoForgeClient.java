@@ -1,6 +1,7 @@
 package com.euphony.todo_list.neoforge.client;
 
 import com.euphony.todo_list.TodoList;
+import com.euphony.todo_list.client.TodoClient;
 import com.euphony.todo_list.client.keymapping.TodoKeyMappings;
 import com.euphony.todo_list.client.keymapping.event.OpenTodoListEvent;
 import com.euphony.todo_list.client.overlay.TodoOverlay;
@@ -9,11 +10,12 @@ import net.minecraft.client.Minecraft;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
 import net.neoforged.neoforge.client.event.ClientTickEvent;
 import net.neoforged.neoforge.client.event.RegisterKeyMappingsEvent;
 import net.neoforged.neoforge.client.event.RenderGuiEvent;
 import net.neoforged.neoforge.client.event.ScreenEvent;
-import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.GameShuttingDownEvent;
 
 @EventBusSubscriber(modid = TodoList.MOD_ID, value = Dist.CLIENT)
 public class TodoListNeoForgeClient {
@@ -28,6 +30,11 @@ public class TodoListNeoForgeClient {
         OpenTodoListEvent.handleKeyInput(minecraft);
     }
 
+    @SubscribeEvent
+    public static void onClientTick(ClientTickEvent.Post event) {
+        TodoClient.onClientTick(Minecraft.getInstance());
+    }
+
     @SubscribeEvent
     public static void onKeyPressed(ScreenEvent.KeyReleased.Post event) {
         if(!TodoKeyMappings.OPEN_TODO_LIST.matches(event.getKeyCode(), event.getScanCode())) return;
@@ -41,8 +48,20 @@ public class TodoListNeoForgeClient {
         TodoOverlay.render(event.getGuiGraphics(), event.getPartialTick());
     }
 
+    // 在客户端线程上触发，单人世界和多人服务器都会调用
+    @SubscribeEvent
+    public static void onWorldLoad(ClientPlayerNetworkEvent.LoggingIn event) {
+        TodoListManager.getInstance().loadFromFileAsync();
+    }
+
+    // 断开连接和退出游戏时写出尚未保存的修改
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        TodoClient.onDisconnect();
+    }
+
     @SubscribeEvent
-    public static void onWorldLoad(PlayerEvent.PlayerLoggedInEvent event) {
-        TodoListManager.getInstance().loadFromFile();
+    public static void onGameShuttingDown(GameShuttingDownEvent event) {
+        TodoClient.onClientStopping();
     }
 }